@@ -2,7 +2,6 @@ package com.nhom10.coolmate.cart;
 
 import com.nhom10.coolmate.cart.Cart;
 import com.nhom10.coolmate.cart.CartService;
-import com.nhom10.coolmate.category.CategoryRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -17,7 +16,6 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 public class CartController {
 
     private final CartService cartService;
-    private final CategoryRepository categoryRepository;
 
     // --- 1. Xem giỏ hàng ---
     @GetMapping
@@ -44,8 +42,8 @@ public class CartController {
 
         model.addAttribute("grandTotal", grandTotal);
         model.addAttribute("totalQuantity", totalQuantity);
-        model.addAttribute("categories", categoryRepository.findAll());
-        model.addAttribute("cartItemCount", cartService.countItemsInCart(request, response));
+        // Giỏ hàng đã có sẵn -> dùng luôn tổng số lượng cho icon giỏ hàng, không cần tính lại
+        model.addAttribute("cartItemCount", totalQuantity);
 
         return "user/cart";
     }
@@ -5,6 +5,7 @@ import com.nhom10.coolmate.product.Product;
 import com.nhom10.coolmate.product.ProductRepository;
 import com.nhom10.coolmate.product.ProductVariant;
 import com.nhom10.coolmate.product.ProductVariantRepository;
+import com.nhom10.coolmate.product.TrendingTracker;
 import com.nhom10.coolmate.sizes.Sizes;
 import com.nhom10.coolmate.sizes.SizesRepository;
 import com.nhom10.coolmate.user.User;
@@ -36,49 +37,53 @@ public class CartService {
     private final ProductVariantRepository productVariantRepository;
     private final ProductRepository productRepository;
     private final SizesRepository sizesRepository;
+    private final TrendingTracker trendingTracker;
 
     private static final String CART_COOKIE_NAME = "CART_SESSION";
     private static final int COOKIE_MAX_AGE = 7 * 24 * 60 * 60; // 7 ngày
 
     // --- 1. CORE: LẤY GIỎ HÀNG (XỬ LÝ CẢ USER VÀ GUEST) ---
+    // Chỉ đọc: nếu chưa có giỏ hàng thì trả về giỏ ảo rỗng (chưa lưu DB, id = null).
+    // Giỏ hàng thật chỉ được tạo ở lần addToCart() đầu tiên, nên khách xem trang / bot không ghi gì vào DB.
     public Cart getCart(HttpServletRequest request, HttpServletResponse response) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         // A. Trường hợp: Đã đăng nhập
         if (authentication != null && isAuthenticated(authentication)) {
-            String email = authentication.getName();
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new AppException("User not found"));
-
-            // Tìm giỏ hàng theo User, nếu chưa có thì tạo mới
-            return cartRepository.findByUser(user).orElseGet(() -> {
-                Cart newCart = Cart.builder()
-                        .user(user)
-                        .cartItems(new ArrayList<>())
-                        .build();
-                return cartRepository.save(newCart);
-            });
+            User user = findCurrentUser(authentication);
+            return cartRepository.findByUser(user).orElseGet(this::emptyCart);
         }
 
         // B. Trường hợp: Khách vãng lai (Guest) - Dùng Cookie
         else {
-            // [QUAN TRỌNG - FIX LỖI]
-            // Tạo Session ngay lập tức để Spring Security có chỗ lưu CSRF token.
-            // Điều này ngăn lỗi "Cannot create a session after the response has been committed"
-            // khi Controller thực hiện redirect sau đó.
-            request.getSession(true);
-
+            // Không tạo HttpSession ở đây: CSRF token đã được nạp sẵn bởi CsrfTokenEagerFilter
             String sessionToken = getSessionTokenFromCookie(request);
 
-            // Nếu chưa có cookie token -> Tạo mới
+            // Chưa có cookie -> chắc chắn chưa có giỏ, không cần truy vấn
             if (sessionToken == null) {
-                return createGuestCart(request, response);
-            } else {
-                // Nếu có token -> Tìm giỏ hàng, nếu không thấy (VD DB bị xóa) -> Tạo mới
-                return cartRepository.findBySessionToken(sessionToken)
-                        .orElseGet(() -> createGuestCart(request, response));
+                return emptyCart();
             }
+            // Có token nhưng không thấy giỏ (VD DB bị xóa) -> coi như giỏ rỗng
+            return cartRepository.findBySessionToken(sessionToken).orElseGet(this::emptyCart);
+        }
+    }
+
+    // Lấy giỏ hàng, tạo mới (kèm cookie cho khách) nếu chưa có. Chỉ dùng khi thêm sản phẩm vào giỏ.
+    private Cart getOrCreateCart(HttpServletRequest request, HttpServletResponse response) {
+        Cart cart = getCart(request, response);
+        if (cart.getId() != null) {
+            return cart;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && isAuthenticated(authentication)) {
+            Cart newCart = Cart.builder()
+                    .user(findCurrentUser(authentication))
+                    .cartItems(new ArrayList<>())
+                    .build();
+            return cartRepository.save(newCart);
         }
+        return createGuestCart(request, response);
     }
 
     // --- 2. LOGIC THÊM VÀO GIỎ ---
@@ -87,8 +92,8 @@ public class CartService {
                           HttpServletRequest request, HttpServletResponse response) {
 
         // Bước 1: Lấy giỏ hàng hiện tại (Guest hoặc User)
-        // Lưu ý: getCart() sẽ tự động tạo Session/Cookie nếu chưa có
-        Cart cart = getCart(request, response);
+        // Lưu ý: đây là nơi duy nhất tạo giỏ hàng (và cookie cho khách) nếu chưa có
+        Cart cart = getOrCreateCart(request, response);
 
         // Bước 2: Validate dữ liệu đầu vào
         Product product = productRepository.findById(productId)
@@ -132,6 +137,9 @@ public class CartService {
             cart.getCartItems().add(newItem);
             cartItemRepository.save(newItem);
         }
+
+        // Bước 6: Tính vào điểm "Đang thịnh hành" của trang chủ (chỉ đếm trong bộ nhớ)
+        trendingTracker.recordAddToCart(productId);
     }
 
     // --- 3. XÓA ITEM KHỎI GIỎ ---
@@ -185,6 +193,18 @@ public class CartService {
 
     // ================= HELPER METHODS =================
 
+    // Giỏ hàng ảo rỗng cho người chưa từng thêm sản phẩm (không lưu DB)
+    private Cart emptyCart() {
+        return Cart.builder()
+                .cartItems(new ArrayList<>())
+                .build();
+    }
+
+    private User findCurrentUser(Authentication authentication) {
+        return userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new AppException("User not found"));
+    }
+
     private Cart createGuestCart(HttpServletRequest request, HttpServletResponse response) {
         String token = UUID.randomUUID().toString();
 
@@ -1,18 +1,24 @@
 package com.nhom10.coolmate.category;
 
+import com.nhom10.coolmate.config.CacheConfig;
 import com.nhom10.coolmate.exception.AppException;
+import com.nhom10.coolmate.product.ProductCardService;
+import com.nhom10.coolmate.product.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductCardService productCardService;
+    private final ProductSearchIndex productSearchIndex;
 
     // --- Mapper ---
     private CategoryDTO mapToDTO(Category category) {
@@ -32,10 +38,12 @@ public class CategoryService {
     }
 
     // --- 1. READ: Lấy tất cả danh mục ---
+    // Snapshot dùng chung toàn ứng dụng (Navbar mọi trang), nạp lại sau khi thêm/sửa/xóa danh mục
+    @Cacheable(CacheConfig.CATEGORIES)
     public List<CategoryDTO> getAllCategories() {
         return categoryRepository.findAll().stream()
                 .map(this::mapToDTO)
-                .collect(Collectors.toList());
+                .toList();
     }
 
     // --- 2. READ: Lấy chi tiết danh mục theo ID ---
@@ -47,6 +55,7 @@ public class CategoryService {
 
     // --- 3. CREATE: Thêm mới danh mục ---
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public CategoryDTO createCategory(CategoryDTO dto) {
         if (categoryRepository.existsByNameIgnoreCase(dto.getName())) {
             throw new AppException("Tên danh mục đã tồn tại: " + dto.getName());
@@ -59,6 +68,7 @@ public class CategoryService {
 
     // --- 4. UPDATE: Cập nhật danh mục ---
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public CategoryDTO updateCategory(Integer id, CategoryDTO dto) {
         Category existingCategory = categoryRepository.findById(id)
                 .orElseThrow(() -> new AppException("Danh mục không tìm thấy với ID: " + id));
@@ -72,16 +82,22 @@ public class CategoryService {
         existingCategory.setDescription(dto.getDescription());
 
         Category updatedCategory = categoryRepository.save(existingCategory);
+        productCardService.renameCategory(id, updatedCategory.getName());
+        // Tên danh mục nằm trong chỉ mục tìm kiếm của từng sản phẩm
+        productSearchIndex.reindexCategory(id);
         return mapToDTO(updatedCategory);
     }
 
     // --- 5. DELETE: Xóa danh mục ---
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public void deleteCategory(Integer id) {
         if (!categoryRepository.existsById(id)) {
             throw new AppException("Danh mục không tìm thấy với ID: " + id);
         }
         // TODO: Cần kiểm tra nếu có sản phẩm nào đang dùng danh mục này thì không cho xóa
         categoryRepository.deleteById(id);
+        productCardService.renameCategory(id, "Danh mục bị lỗi");
+        productSearchIndex.reindexCategory(id);
     }
 }
\ No newline at end of file
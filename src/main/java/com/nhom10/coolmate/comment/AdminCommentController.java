@@ -64,6 +64,18 @@ public class AdminCommentController {
         return getRedirectPath(redirectUrl, productId);
     }
 
+    // --- 3. Dựng lại bảng thống kê đánh giá từ toàn bộ bình luận (POST /admin/comments/ratings/rebuild) ---
+    @PostMapping("/ratings/rebuild")
+    public String rebuildRatings(RedirectAttributes ra) {
+        try {
+            int products = commentService.rebuildRatingAggregates();
+            ra.addFlashAttribute("successMessage", "Đã tính lại thống kê đánh giá cho " + products + " sản phẩm!");
+        } catch (Exception e) {
+            ra.addFlashAttribute("errorMessage", "Lỗi: " + e.getMessage());
+        }
+        return "redirect:/admin/comments";
+    }
+
     // --- Helper: Xác định đường dẫn redirect ---
     private String getRedirectPath(String redirectUrl, Integer productId) {
         // Ưu tiên 1: Nếu có redirectUrl (từ trang admin list gửi lên) -> quay lại đó
@@ -0,0 +1,27 @@
+package com.nhom10.coolmate.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bình luận đã tách khỏi Entity (không còn lazy-load), dùng để cache trang chi tiết
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentDTO {
+    private Integer id;
+    private String content;
+    private Integer rate;
+    private Boolean isAdminReply;
+    private String username;
+    private Timestamp createdAt;
+
+    @Builder.Default
+    private List<CommentDTO> replies = new ArrayList<>();
+}
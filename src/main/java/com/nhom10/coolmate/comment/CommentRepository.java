@@ -1,17 +1,32 @@
 package com.nhom10.coolmate.comment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Integer> {
 
 
-    List<Comment> findAllByProductIdOrderByCreatedAtDesc(Integer productId);
+    // Toàn bộ bình luận (gốc + trả lời) của 1 sản phẩm kèm người viết, trong 1 câu truy vấn
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user " +
+            "WHERE c.product.id = :productId ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findAllWithUserByProductId(@Param("productId") Integer productId);
 
 
     List<Comment> findByProductIdAndParentIsNullOrderByCreatedAtDesc(Integer productId);
 
     List<Comment> findAllByOrderByCreatedAtDesc();
+
+    // Phân bố số sao của toàn bộ sản phẩm (dùng để dựng lại bảng product_ratings): [productId, rate, count]
+    @Query("SELECT c.product.id, c.rate, COUNT(c) FROM Comment c " +
+            "WHERE c.rate BETWEEN 1 AND 5 " +
+            "GROUP BY c.product.id, c.rate")
+    List<Object[]> countRatingsGroupByProductAndRate();
+
+    // Có bình luận nào chấm sao chưa (quyết định có cần backfill bảng product_ratings hay không)
+    boolean existsByRateBetween(Integer minRate, Integer maxRate);
 }
\ No newline at end of file
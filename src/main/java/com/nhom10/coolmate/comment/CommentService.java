@@ -1,15 +1,25 @@
 package com.nhom10.coolmate.comment;
 
+import com.nhom10.coolmate.config.CacheConfig;
 import com.nhom10.coolmate.product.Product;
+import com.nhom10.coolmate.product.ProductCardService;
 import com.nhom10.coolmate.product.ProductRepository;
 import com.nhom10.coolmate.user.User;
 import com.nhom10.coolmate.user.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor // Sử dụng Lombok để tự động inject dependency (thay cho constructor thủ công)
@@ -18,37 +28,127 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductRatingRepository productRatingRepository;
+    private final CacheManager cacheManager;
+    private final ProductCardService productCardService;
+
+    // --- 1. Lấy danh sách comment dạng cây (gốc mới nhất trước, trả lời theo thứ tự thời gian) ---
+    // Lấy tất cả trong 1 câu truy vấn rồi ghép cây trong bộ nhớ, thay vì lazy-load replies của từng comment
+    public List<CommentDTO> getCommentsByProductId(Integer productId) {
+        List<Comment> comments = commentRepository.findAllWithUserByProductId(productId);
+
+        List<CommentDTO> roots = new ArrayList<>();
+        Map<Integer, List<CommentDTO>> repliesByParent = new HashMap<>();
+        for (Comment comment : comments) {
+            CommentDTO dto = mapToDTO(comment);
+            if (comment.getParent() == null) {
+                roots.add(dto);
+            } else {
+                // Truy vấn trả về mới nhất trước -> chèn lên đầu để trả lời theo thứ tự cũ -> mới
+                repliesByParent.computeIfAbsent(comment.getParent().getId(), id -> new ArrayList<>()).add(0, dto);
+            }
+        }
+        for (CommentDTO root : roots) {
+            root.setReplies(repliesByParent.getOrDefault(root.getId(), new ArrayList<>()));
+        }
+        return roots;
+    }
 
-    // --- 1. Lấy danh sách comment (Chỉ lấy cha, con sẽ được load tự động) ---
-    public List<Comment> getCommentsByProductId(Integer productId) {
-        // Lưu ý: Repository phải có hàm này
-        return commentRepository.findByProductIdAndParentIsNullOrderByCreatedAtDesc(productId);
+    private CommentDTO mapToDTO(Comment comment) {
+        return CommentDTO.builder()
+                .id(comment.getId())
+                .content(comment.getContent())
+                .rate(comment.getRate())
+                .isAdminReply(Boolean.TRUE.equals(comment.getIsAdminReply()))
+                .username(comment.getUser().getUsername())
+                .createdAt(comment.getCreatedAt())
+                .build();
     }
 
-    // --- 2. Tính điểm đánh giá trung bình ---
+    // --- 2. Điểm đánh giá trung bình (đọc từ bảng thống kê product_ratings, O(1)) ---
     public Double getAverageRatingByProductId(Integer productId) {
+        return productRatingRepository.findById(productId)
+                .map(ProductRating::getAverage)
+                .orElse(0.0);
+    }
 
-        List<Comment> comments = commentRepository.findAllByProductIdOrderByCreatedAtDesc(productId);
+    // --- 2b. Điểm trung bình của nhiều sản phẩm cùng lúc (1 câu truy vấn theo khóa chính) ---
+    public Map<Integer, Double> getAverageRatingsByProductIds(Collection<Integer> productIds) {
+        Map<Integer, Double> ratings = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) return ratings;
 
-        if (comments.isEmpty()) {
-            return 0.0;
+        for (ProductRating rating : productRatingRepository.findAllByProductIdIn(productIds)) {
+            ratings.put(rating.getProductId(), rating.getAverage());
         }
+        return ratings;
+    }
 
-        double sumOfRatings = comments.stream()
-                .filter(c -> c.getRate() != null && c.getRate() > 0) // Chỉ tính comment có rate (bỏ qua admin reply)
-                .mapToInt(Comment::getRate)
-                .sum();
+    // --- 2c. Tổng quan đánh giá cho trang chi tiết: điểm trung bình + phân bố số sao ---
+    public RatingSummaryDTO getRatingSummary(Integer productId) {
+        ProductRating rating = productRatingRepository.findById(productId).orElse(null);
+        long total = rating != null ? rating.getRatingCount() : 0L;
 
-        long validCount = comments.stream()
-                .filter(c -> c.getRate() != null && c.getRate() > 0)
-                .count();
+        List<RatingSummaryDTO.StarCount> distribution = new ArrayList<>();
+        for (int star = 5; star >= 1; star--) {
+            long count = rating != null ? rating.getStarCount(star) : 0L;
+            int percent = total > 0 ? (int) Math.round(count * 100.0 / total) : 0;
+            distribution.add(new RatingSummaryDTO.StarCount(star, count, percent));
+        }
 
-        if (validCount == 0) {
-            return 0.0;
+        return RatingSummaryDTO.builder()
+                .average(rating != null ? rating.getAverage() : 0.0)
+                .totalRatings(total)
+                .distribution(distribution)
+                .build();
+    }
+
+    // --- 2d. Dựng lại toàn bộ bảng thống kê từ bình luận (backfill) ---
+    @Transactional
+    public int rebuildRatingAggregates() {
+        Map<Integer, ProductRating> aggregates = new HashMap<>();
+
+        for (Object[] row : commentRepository.countRatingsGroupByProductAndRate()) {
+            Integer productId = (Integer) row[0];
+            int rate = (Integer) row[1];
+            long count = ((Number) row[2]).longValue();
+
+            ProductRating rating = aggregates.computeIfAbsent(productId, id -> ProductRating.builder()
+                    .productId(id).ratingCount(0L).ratingSum(0L)
+                    .star1(0L).star2(0L).star3(0L).star4(0L).star5(0L)
+                    .build());
+
+            rating.setRatingCount(rating.getRatingCount() + count);
+            rating.setRatingSum(rating.getRatingSum() + rate * count);
+            switch (rate) {
+                case 1 -> rating.setStar1(count);
+                case 2 -> rating.setStar2(count);
+                case 3 -> rating.setStar3(count);
+                case 4 -> rating.setStar4(count);
+                case 5 -> rating.setStar5(count);
+            }
         }
 
-        double average = sumOfRatings / validCount;
-        return Math.round(average * 10.0) / 10.0; // Làm tròn 1 chữ số thập phân
+        productRatingRepository.deleteAllInBatch();
+        productRatingRepository.saveAll(aggregates.values());
+        // Điểm trên thẻ sản phẩm (trang danh sách) được dựng lại cùng
+        productCardService.rebuildAll();
+
+        // Điểm đánh giá trên mọi trang chi tiết đã cache có thể đã thay đổi
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_DETAIL);
+        if (cache != null) {
+            cache.clear();
+        }
+        return aggregates.size();
+    }
+
+    // Khi khởi động: nếu bảng thống kê còn trống (lần đầu triển khai) mà đã có bình luận chấm sao thì backfill từ dữ liệu cũ.
+    // Gọi rebuildRatingAggregates() nội bộ không qua proxy, nên transaction phải mở ngay tại đây.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillRatingAggregatesIfEmpty() {
+        if (productRatingRepository.count() == 0 && commentRepository.existsByRateBetween(1, 5)) {
+            rebuildRatingAggregates();
+        }
     }
 
     // --- 3. User thêm bình luận mới ---
@@ -70,7 +170,15 @@ public class CommentService {
                 // createdAt được xử lý bởi @PrePersist trong Entity
                 .build();
 
-        return commentRepository.save(comment);
+        Comment saved = commentRepository.save(comment);
+
+        // Cộng dồn vào bảng thống kê trong cùng transaction (admin reply / không chấm sao thì bỏ qua)
+        if (saved.getRate() != null && saved.getRate() >= 1) {
+            productRatingRepository.addRating(productId, saved.getRate());
+            productCardService.refreshRating(productId);
+        }
+        evictProductDetail(productId);
+        return saved;
     }
 
     // --- 4. Admin trả lời bình luận (ĐÃ SỬA LOGIC LÀM PHẲNG) ---
@@ -100,6 +208,7 @@ public class CommentService {
                 .build();
 
         commentRepository.save(reply);
+        evictProductDetail(reply.getProduct().getId());
     }
     // --- 5. User trả lời bình luận (Reply) ---
     @Transactional
@@ -126,6 +235,7 @@ public class CommentService {
                 .build();
 
         commentRepository.save(reply);
+        evictProductDetail(reply.getProduct().getId());
     }
 
     // ==========================================================
@@ -159,6 +269,14 @@ public class CommentService {
                 .build();
 
         commentRepository.save(reply);
+        evictProductDetail(reply.getProduct().getId());
     }
 
-}
\ No newline at end of file
+    // Bình luận thay đổi -> xóa trang chi tiết đã cache của sản phẩm (thực hiện sau khi commit)
+    private void evictProductDetail(Integer productId) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_DETAIL);
+        if (cache != null) {
+            cache.evict(productId);
+        }
+    }
+}
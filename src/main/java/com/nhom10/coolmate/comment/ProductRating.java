@@ -0,0 +1,62 @@
+package com.nhom10.coolmate.comment;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thống kê đánh giá của một sản phẩm, được cập nhật cộng dồn mỗi khi có đánh giá mới
+ * (thay vì đọc lại toàn bộ bình luận để tính trung bình).
+ */
+@Entity
+@Table(name = "product_ratings")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRating {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum;
+
+    // Phân bố số sao (1–5)
+    @Column(name = "star_1", nullable = false)
+    private Long star1;
+
+    @Column(name = "star_2", nullable = false)
+    private Long star2;
+
+    @Column(name = "star_3", nullable = false)
+    private Long star3;
+
+    @Column(name = "star_4", nullable = false)
+    private Long star4;
+
+    @Column(name = "star_5", nullable = false)
+    private Long star5;
+
+    // Điểm trung bình, làm tròn 1 chữ số thập phân
+    public double getAverage() {
+        if (ratingCount == null || ratingCount == 0) return 0.0;
+        return Math.round((double) ratingSum / ratingCount * 10.0) / 10.0;
+    }
+
+    public long getStarCount(int star) {
+        return switch (star) {
+            case 1 -> star1;
+            case 2 -> star2;
+            case 3 -> star3;
+            case 4 -> star4;
+            case 5 -> star5;
+            default -> 0L;
+        };
+    }
+}
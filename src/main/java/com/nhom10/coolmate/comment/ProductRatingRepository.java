@@ -0,0 +1,34 @@
+package com.nhom10.coolmate.comment;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Integer> {
+
+    List<ProductRating> findAllByProductIdIn(Collection<Integer> productIds);
+
+    // Cộng dồn 1 đánh giá trong 1 câu lệnh (tạo dòng nếu sản phẩm chưa có thống kê).
+    // Nguyên tử ở mức DB nên không mất cập nhật khi nhiều người đánh giá cùng lúc.
+    @Modifying
+    @Query(value = "INSERT INTO product_ratings (product_id, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5) " +
+            "VALUES (:productId, 1, :rate, " +
+            "  CASE WHEN :rate = 1 THEN 1 ELSE 0 END, CASE WHEN :rate = 2 THEN 1 ELSE 0 END, " +
+            "  CASE WHEN :rate = 3 THEN 1 ELSE 0 END, CASE WHEN :rate = 4 THEN 1 ELSE 0 END, " +
+            "  CASE WHEN :rate = 5 THEN 1 ELSE 0 END) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "  rating_count = rating_count + 1, rating_sum = rating_sum + :rate, " +
+            "  star_1 = star_1 + CASE WHEN :rate = 1 THEN 1 ELSE 0 END, " +
+            "  star_2 = star_2 + CASE WHEN :rate = 2 THEN 1 ELSE 0 END, " +
+            "  star_3 = star_3 + CASE WHEN :rate = 3 THEN 1 ELSE 0 END, " +
+            "  star_4 = star_4 + CASE WHEN :rate = 4 THEN 1 ELSE 0 END, " +
+            "  star_5 = star_5 + CASE WHEN :rate = 5 THEN 1 ELSE 0 END",
+            nativeQuery = true)
+    void addRating(@Param("productId") Integer productId, @Param("rate") Integer rate);
+}
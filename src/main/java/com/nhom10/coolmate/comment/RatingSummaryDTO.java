@@ -0,0 +1,24 @@
+package com.nhom10.coolmate.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummaryDTO {
+    private double average;
+    private long totalRatings;
+
+    // Phân bố số sao, sắp xếp từ 5 sao xuống 1 sao
+    @Builder.Default
+    private List<StarCount> distribution = new ArrayList<>();
+
+    public record StarCount(int star, long count, int percent) {}
+}
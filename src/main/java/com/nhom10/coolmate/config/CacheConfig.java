@@ -0,0 +1,44 @@
+package com.nhom10.coolmate.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nhom10.coolmate.product.ProductDetailDTO;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    // Cache trang chi tiết sản phẩm (key: productId)
+    public static final String PRODUCT_DETAIL = "productDetail";
+    // Snapshot danh mục cho Navbar (1 key duy nhất)
+    public static final String CATEGORIES = "categories";
+
+    // Giới hạn theo "trọng lượng" (xem ProductDetailDTO.weight()) chứ không theo số key,
+    // để vài sản phẩm có hàng nghìn bình luận không chiếm hết bộ nhớ
+    private static final long PRODUCT_DETAIL_MAX_WEIGHT = 50_000;
+    // Lưới an toàn cho tồn kho: đặt hàng không xóa cache, tồn kho hiển thị trễ tối đa chừng này
+    private static final Duration PRODUCT_DETAIL_TTL = Duration.ofMinutes(2);
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(PRODUCT_DETAIL, Caffeine.newBuilder()
+                .maximumWeight(PRODUCT_DETAIL_MAX_WEIGHT)
+                .weigher((Object key, Object value) -> ((ProductDetailDTO) value).weight())
+                .expireAfterWrite(PRODUCT_DETAIL_TTL)
+                .build());
+        cacheManager.registerCustomCache(CATEGORIES, Caffeine.newBuilder()
+                .maximumSize(1)
+                .build());
+
+        // Xóa cache (evict) chỉ thực hiện sau khi transaction commit, tránh request đồng thời
+        // nạp lại dữ liệu cũ vào cache trước khi thay đổi được ghi xuống DB
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,28 @@
+package com.nhom10.coolmate.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Nạp CSRF token ngay đầu request (trước khi Controller/Thymeleaf ghi response), để cookie
+ * (hoặc session) chứa token luôn được gửi kịp, kể cả khi response đã commit giữa chừng lúc render.
+ * Thay cho việc gọi request.getSession(true) trong CartService trước đây.
+ */
+public class CsrfTokenEagerFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CsrfToken csrfToken = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+        if (csrfToken != null) {
+            csrfToken.getToken();
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -1,22 +1,43 @@
 package com.nhom10.coolmate.config;
 
 import com.nhom10.coolmate.cart.CartService;
+import com.nhom10.coolmate.category.CategoryDTO;
+import com.nhom10.coolmate.category.CategoryService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.thymeleaf.context.LazyContextVariable;
 
+import java.util.List;
+
+/**
+ * Nguồn duy nhất cho dữ liệu chung của Navbar/Header trên mọi trang.
+ * - categories: đọc từ snapshot trong bộ nhớ của CategoryService (không truy vấn DB khi đã nạp)
+ * - cartItemCount: chỉ tính khi template thực sự hiển thị, tối đa 1 lần mỗi request
+ *   (redirect, trang admin... không tốn truy vấn nào)
+ */
 @ControllerAdvice
 @RequiredArgsConstructor
 public class GlobalControllerAdvice {
 
     private final CartService cartService;
+    private final CategoryService categoryService;
 
+    @ModelAttribute("categories")
+    public List<CategoryDTO> populateCategories() {
+        return categoryService.getAllCategories();
+    }
 
     @ModelAttribute("cartItemCount")
-    public int populateCartItemCount(HttpServletRequest request, HttpServletResponse response) {
-
-        return cartService.countItemsInCart(request, response);
+    public LazyContextVariable<Integer> populateCartItemCount(HttpServletRequest request, HttpServletResponse response) {
+        // LazyContextVariable tự ghi nhớ giá trị sau lần đọc đầu tiên
+        return new LazyContextVariable<>() {
+            @Override
+            protected Integer loadValue() {
+                return cartService.countItemsInCart(request, response);
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.nhom10.coolmate.config;
 
 import com.nhom10.coolmate.user.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -10,6 +11,10 @@ import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfFilter;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+import org.springframework.security.web.csrf.HttpSessionCsrfTokenRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Configuration
@@ -19,6 +24,12 @@ public class SecurityConfig {
     @Autowired
     private AuthenticationSuccessHandler customAuthenticationSuccessHandler;
 
+    // true: khách vãng lai không có HttpSession, CSRF token lưu trong cookie.
+    // Session chỉ được tạo khi đăng nhập hoặc khi có flash message (sau thao tác với giỏ hàng...).
+    // false: CSRF token lưu trong session như trước (mỗi khách 1 session trên Tomcat).
+    @Value("${coolmate.security.stateless-guests:true}")
+    private boolean statelessGuests;
+
     @SuppressWarnings("deprecation")
     @Bean
     public PasswordEncoder passwordEncoder() {
@@ -89,8 +100,20 @@ public class SecurityConfig {
                         .tokenValiditySeconds(86400)
                         .userDetailsService(userService)
                 )
-                .authenticationProvider(authenticationProvider);
+                .authenticationProvider(authenticationProvider)
+                .csrf(csrf -> csrf.csrfTokenRepository(csrfTokenRepository()))
+                .addFilterAfter(new CsrfTokenEagerFilter(), CsrfFilter.class);
 
         return http.build();
     }
+
+    private CsrfTokenRepository csrfTokenRepository() {
+        if (!statelessGuests) {
+            return new HttpSessionCsrfTokenRepository();
+        }
+        // Cookie HttpOnly: form nhận token qua Thymeleaf, JS không cần đọc cookie
+        CookieCsrfTokenRepository repository = new CookieCsrfTokenRepository();
+        repository.setCookieCustomizer(cookie -> cookie.sameSite("Lax"));
+        return repository;
+    }
 }
\ No newline at end of file
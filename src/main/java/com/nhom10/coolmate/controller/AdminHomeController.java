@@ -1,15 +1,32 @@
 package com.nhom10.coolmate.controller;
 
-import com.nhom10.coolmate.order.OrderRepository;
+import com.nhom10.coolmate.category.CategoryService;
+import com.nhom10.coolmate.dashboard.BestsellerTracker;
+import com.nhom10.coolmate.dashboard.DashboardEventHub;
+import com.nhom10.coolmate.dashboard.DashboardSummaryDTO;
+import com.nhom10.coolmate.dashboard.DashboardSummaryService;
+import com.nhom10.coolmate.dashboard.SalesAnalyticsService;
+import com.nhom10.coolmate.dashboard.SalesDimension;
+import com.nhom10.coolmate.dashboard.SalesGranularity;
+import com.nhom10.coolmate.dashboard.SalesReportDTO;
+import com.nhom10.coolmate.dashboard.SalesRollupService;
 import com.nhom10.coolmate.order.OrderService;
-import com.nhom10.coolmate.order.OrderStatus;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Controller
@@ -18,14 +35,17 @@ import java.util.List;
 public class AdminHomeController {
 
     private final OrderService orderService;
-    private final OrderRepository orderRepository;
+    private final SalesRollupService salesRollupService;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final DashboardEventHub dashboardEventHub;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final CategoryService categoryService;
 
     @GetMapping("/home")
     public String showHomePage(Model model) {
-        // 1. Thống kê tổng quan
+        // 1. Thống kê tổng quan (đơn theo trạng thái, số liệu hôm nay: 1 câu truy vấn, cache ngắn hạn)
         BigDecimal totalRevenue = orderService.getTotalRevenue();
-        long totalOrders = orderRepository.count();
-        long pendingOrders = orderRepository.findByStatus(OrderStatus.PENDING).size();
+        DashboardSummaryDTO summary = dashboardSummaryService.getSummary();
 
         // 2. [CẬP NHẬT] Lấy Top sản phẩm bán chạy (Top 10)
         List<OrderService.ProductSaleDTO> topSellingProducts = orderService.getTopSellingProducts();
@@ -33,16 +53,58 @@ public class AdminHomeController {
         // 3. [MỚI] Lấy dữ liệu biểu đồ doanh thu 6 tháng
         List<OrderService.RevenueChartDTO> revenueData = orderService.getRevenueLast6Months();
 
-        // 4. Add to Model
+        // 4. Doanh số theo danh mục 30 ngày gần nhất
+        List<OrderService.CategorySaleDTO> categorySales = orderService.getCategorySalesLast30Days();
+
+        // 5. Add to Model
         model.addAttribute("pageTitle", "Trang Chủ Quản Trị");
         model.addAttribute("totalRevenue", totalRevenue);
-        model.addAttribute("totalOrders", totalOrders);
-        model.addAttribute("pendingOrders", pendingOrders);
+        model.addAttribute("totalOrders", summary.getTotalOrders());
+        model.addAttribute("pendingOrders", summary.getPendingOrders());
+        model.addAttribute("summary", summary);
 
         // Truyền dữ liệu xuống JavaScript
         model.addAttribute("topSellingProducts", topSellingProducts);
         model.addAttribute("revenueData", revenueData);
+        model.addAttribute("categorySales", categorySales);
+        model.addAttribute("categories", categoryService.getAllCategories());
 
         return "admin/home";
     }
-}
\ No newline at end of file
+
+    // Luồng sự kiện (SSE) cho trang chủ: đơn mới, đổi trạng thái, thay đổi doanh thu
+    @GetMapping(value = "/home/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamDashboardEvents() throws IOException {
+        return dashboardEventHub.subscribe(dashboardSummaryService.getSummary());
+    }
+
+    // Báo cáo doanh số theo khoảng thời gian bất kỳ (JSON, tính trong bộ nhớ). Mặc định: 30 ngày gần nhất theo ngày
+    @GetMapping("/home/analytics")
+    @ResponseBody
+    public SalesReportDTO salesReport(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                      @RequestParam(defaultValue = "DAY") SalesGranularity granularity,
+                                      @RequestParam(defaultValue = "NONE") SalesDimension dimension) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return salesAnalyticsService.report(start, end, granularity, dimension);
+    }
+
+    // Bảng xếp hạng bán chạy theo khung thời gian / danh mục (JSON, cho biểu đồ Top 10)
+    @GetMapping("/home/bestsellers")
+    @ResponseBody
+    public List<OrderService.ProductSaleDTO> bestsellers(@RequestParam(defaultValue = "ALL_TIME") BestsellerTracker.Window window,
+                                                         @RequestParam(required = false) Integer categoryId) {
+        return orderService.getBestsellers(window, categoryId, 10);
+    }
+
+    // Tính lại toàn bộ bảng tổng hợp doanh số từ bảng orders (khi dữ liệu bị sửa tay trong DB)
+    @PostMapping("/home/rebuild-sales")
+    public String rebuildSalesRollups(RedirectAttributes redirectAttributes) {
+        salesRollupService.rebuild();
+        dashboardSummaryService.invalidate();
+        redirectAttributes.addFlashAttribute("successMessage", "Đã tính lại số liệu doanh thu.");
+        return "redirect:/admin/home";
+    }
+}
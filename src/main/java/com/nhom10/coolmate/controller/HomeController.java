@@ -1,46 +1,29 @@
 package com.nhom10.coolmate.controller;
 
-import com.nhom10.coolmate.cart.CartService;
-import com.nhom10.coolmate.category.CategoryDTO;
-import com.nhom10.coolmate.category.CategoryService;
 import com.nhom10.coolmate.product.ProductService;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
+import com.nhom10.coolmate.product.TrendingTracker;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import java.util.List;
-
 @Controller
 @RequiredArgsConstructor
 public class HomeController {
 
     private final ProductService productService;
-    private final CategoryService categoryService;
-    private final CartService cartService;
-
-    // --- LOGIC TẢI DỮ LIỆU CHUNG (Navbar) ---
-    // Được tự động gọi cho tất cả các Controller khác có return về View
+    private final TrendingTracker trendingTracker;
 
-    @ModelAttribute("categories")
-    public List<CategoryDTO> getCategories() {
-        return categoryService.getAllCategories();
-    }
-
-    @ModelAttribute("cartItemCount")
-    public int getCartItemCount(HttpServletRequest request, HttpServletResponse response) {
-        return cartService.countItemsInCart(request, response);
-    }
+    // Dữ liệu chung của Navbar (danh mục, số lượng giỏ hàng) do GlobalControllerAdvice cung cấp
 
     // --- CÁC TRANG CƠ BẢN ---
 
     @GetMapping({"/", "/user/home", "/user/"})
     public String home(Model model) {
         model.addAttribute("featuredProducts", productService.getFeaturedProducts());
+        // Snapshot trong bộ nhớ, làm mới ở luồng nền (không truy vấn DB)
+        model.addAttribute("trendingProducts", trendingTracker.getTrendingProducts());
         return "user/home";
     }
 
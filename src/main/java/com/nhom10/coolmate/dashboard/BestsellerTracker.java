@@ -0,0 +1,203 @@
+package com.nhom10.coolmate.dashboard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Theo dõi sản phẩm bán chạy trong bộ nhớ, cập nhật dần theo từng đơn hàng DELIVERED (không quét order_items).
+ * - Bảng xếp hạng biến thể (Leaderboard) cho: mọi thời điểm / 30 ngày gần nhất, toàn shop / từng danh mục;
+ *   đọc top-k chỉ tốn O(k).
+ * - 30 ngày: giữ số lượng theo từng ngày, qua ngày mới thì trừ phần của ngày vừa ra khỏi khung.
+ * - Số lượng bán theo sản phẩm (mọi thời điểm) cho kiểu sắp xếp "Bán chạy nhất" ở trang sản phẩm,
+ *   đọc qua 1 bản chụp cố định (làm mới tối đa mỗi RANKING_TTL) để sắp xếp và phân trang không bị lệch khi có đơn mới.
+ * Dựng từ daily_variant_sales (qua SalesRollupService, sau khi bảng tổng hợp sẵn sàng); sau đó nhận delta sau khi commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class BestsellerTracker {
+
+    public enum Window { ALL_TIME, LAST_30_DAYS }
+
+    static final int WINDOW_DAYS = 30;
+    // Số phần tử mỗi bảng xếp hạng giữ sẵn (giới hạn tối đa khi đọc top)
+    static final int CAPACITY = 50;
+    // Khóa bảng xếp hạng toàn shop (danh mục thật luôn có id > 0)
+    private static final int ALL_CATEGORIES = -1;
+    // Thời gian dùng lại 1 bản chụp số lượng bán theo sản phẩm
+    private static final Duration RANKING_TTL = Duration.ofMinutes(1);
+
+    // Số lượng bán của 1 biến thể trong 1 đơn hàng
+    public record VariantUnits(int variantId, int productId, int categoryId, long units) {}
+
+    public record Ranked(int variantId, long unitsSold) {}
+
+    // Bản chụp số lượng bán (mọi thời điểm) theo sản phẩm, không đổi sau khi tạo
+    private record ProductRanking(Map<Integer, Long> units, long expiresAtNanos) {}
+
+    private final DailyVariantSalesRepository dailyVariantSalesRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // [window][categoryId hoặc ALL_CATEGORIES] -> bảng xếp hạng biến thể
+    private final Map<Window, Map<Integer, Leaderboard>> boards = new HashMap<>();
+    // Số lượng theo ngày trong khung 30 ngày: ngày -> biến thể -> số lượng
+    private final NavigableMap<LocalDate, Map<Integer, Long>> recentDays = new TreeMap<>();
+    // biến thể -> danh mục (để trừ khỏi bảng xếp hạng danh mục khi hết khung 30 ngày)
+    private final Map<Integer, Integer> variantCategories = new HashMap<>();
+    // Đọc không cần lock (mỗi sản phẩm trong danh sách gọi 1 lần)
+    private final Map<Integer, Long> productUnits = new ConcurrentHashMap<>();
+    private volatile LocalDate windowStart;
+    private volatile ProductRanking productRanking;
+
+    // --- 1. Dựng từ bảng tổng hợp (SalesRollupService gọi lúc khởi động và khi dựng lại bảng tổng hợp) ---
+    void rebuild() {
+        LocalDate start = LocalDate.now().minusDays(WINDOW_DAYS - 1);
+        List<Object[]> totals = dailyVariantSalesRepository.sumUnitsByVariant();
+        List<Object[]> recent = dailyVariantSalesRepository.findUnitsSince(start);
+
+        lock.writeLock().lock();
+        try {
+            boards.clear();
+            recentDays.clear();
+            variantCategories.clear();
+            productUnits.clear();
+            productRanking = null;
+            windowStart = start;
+
+            // [biến thể, sản phẩm, danh mục, tổng số lượng]
+            for (Object[] row : totals) {
+                int variantId = (Integer) row[0];
+                int productId = (Integer) row[1];
+                int categoryId = row[2] != null ? (Integer) row[2] : SalesRollupService.NO_CATEGORY;
+                long units = ((Number) row[3]).longValue();
+                variantCategories.put(variantId, categoryId);
+                addToBoards(Window.ALL_TIME, variantId, categoryId, units);
+                productUnits.merge(productId, units, Long::sum);
+            }
+            // [ngày, biến thể, số lượng]
+            for (Object[] row : recent) {
+                int variantId = (Integer) row[1];
+                long units = ((Number) row[2]).longValue();
+                recentDays.computeIfAbsent((LocalDate) row[0], day -> new HashMap<>()).merge(variantId, units, Long::sum);
+                addToBoards(Window.LAST_30_DAYS, variantId, variantCategories.getOrDefault(variantId, SalesRollupService.NO_CATEGORY), units);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- 2. Delta của 1 đơn hàng (gọi trong transaction của SalesRollupService, áp vào sau khi commit) ---
+    void record(LocalDate day, List<VariantUnits> variants) {
+        Runnable apply = () -> {
+            lock.writeLock().lock();
+            try {
+                slideWindow();
+                boolean recent = !day.isBefore(windowStart);
+                for (VariantUnits sale : variants) {
+                    variantCategories.put(sale.variantId(), sale.categoryId());
+                    addToBoards(Window.ALL_TIME, sale.variantId(), sale.categoryId(), sale.units());
+                    productUnits.merge(sale.productId(), sale.units(), Long::sum);
+                    if (recent) {
+                        recentDays.computeIfAbsent(day, d -> new HashMap<>()).merge(sale.variantId(), sale.units(), Long::sum);
+                        addToBoards(Window.LAST_30_DAYS, sale.variantId(), sale.categoryId(), sale.units());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // --- 3. Top biến thể bán chạy (categoryId = null: toàn shop) ---
+    public List<Ranked> top(Window window, Integer categoryId, int limit) {
+        slideWindowIfNeeded();
+        lock.readLock().lock();
+        try {
+            Leaderboard board = boards.getOrDefault(window, Map.of())
+                    .get(categoryId != null ? categoryId : ALL_CATEGORIES);
+            if (board == null) return List.of();
+            return board.top(Math.min(limit, CAPACITY)).stream()
+                    .map(entry -> new Ranked(entry.id(), entry.count()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- 4. Tổng số lượng đã bán của 1 sản phẩm (mọi thời điểm) ---
+    public long unitsSold(Integer productId) {
+        return productId != null ? productUnits.getOrDefault(productId, 0L) : 0L;
+    }
+
+    // --- 5. Bản chụp số lượng bán theo sản phẩm (sản phẩm -> số lượng, không đổi), dùng cho sắp xếp + phân trang ---
+    public Map<Integer, Long> productUnitsSnapshot() {
+        ProductRanking current = productRanking;
+        if (current != null && System.nanoTime() - current.expiresAtNanos() < 0) return current.units();
+
+        // Gán trong read lock: rebuild() (write lock) không thể xóa bản chụp rồi bị bản chụp cũ ghi đè lại
+        lock.readLock().lock();
+        try {
+            current = new ProductRanking(Map.copyOf(productUnits), System.nanoTime() + RANKING_TTL.toNanos());
+            productRanking = current;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return current.units();
+    }
+
+    // ================= HELPER METHODS (trừ slideWindowIfNeeded, gọi khi đã giữ write lock) =================
+
+    private void slideWindowIfNeeded() {
+        LocalDate current = windowStart;
+        if (current != null && !LocalDate.now().minusDays(WINDOW_DAYS - 1).isAfter(current)) return;
+        lock.writeLock().lock();
+        try {
+            slideWindow();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addToBoards(Window window, int variantId, int categoryId, long units) {
+        Map<Integer, Leaderboard> byCategory = boards.computeIfAbsent(window, w -> new HashMap<>());
+        byCategory.computeIfAbsent(ALL_CATEGORIES, c -> new Leaderboard(CAPACITY)).add(variantId, units);
+        byCategory.computeIfAbsent(categoryId, c -> new Leaderboard(CAPACITY)).add(variantId, units);
+    }
+
+    // Sang ngày mới: trừ số lượng của các ngày vừa ra khỏi khung 30 ngày
+    private void slideWindow() {
+        LocalDate start = LocalDate.now().minusDays(WINDOW_DAYS - 1);
+        if (windowStart == null) windowStart = start;
+        if (!start.isAfter(windowStart)) return;
+
+        Map<LocalDate, Map<Integer, Long>> expired = recentDays.headMap(start);
+        for (Map<Integer, Long> day : expired.values()) {
+            day.forEach((variantId, units) -> addToBoards(Window.LAST_30_DAYS, variantId,
+                    variantCategories.getOrDefault(variantId, SalesRollupService.NO_CATEGORY), -units));
+        }
+        expired.clear();
+        windowStart = start;
+    }
+}
@@ -0,0 +1,43 @@
+package com.nhom10.coolmate.dashboard;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Số lượng bán và doanh thu theo ngày của từng danh mục (categoryId = 0: sản phẩm không có danh mục)
+@Entity
+@Table(name = "daily_category_sales")
+@IdClass(DailyCategorySales.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyCategorySales {
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(name = "revenue", nullable = false, precision = 15, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private Integer categoryId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.nhom10.coolmate.dashboard;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyCategorySalesRepository extends JpaRepository<DailyCategorySales, DailyCategorySales.Key> {
+
+    // Doanh số theo danh mục từ một ngày trở đi (tên danh mục, số lượng, doanh thu), doanh thu cao trước
+    @Query("SELECT c.name, SUM(d.unitsSold), SUM(d.revenue) " +
+            "FROM DailyCategorySales d LEFT JOIN Category c ON c.id = d.categoryId " +
+            "WHERE d.saleDate >= :from " +
+            "GROUP BY d.categoryId, c.name " +
+            "HAVING SUM(d.unitsSold) > 0 " +
+            "ORDER BY SUM(d.revenue) DESC")
+    List<Object[]> sumByCategorySince(@Param("from") LocalDate from);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_category_sales (sale_date, category_id, units_sold, revenue) " +
+            "VALUES (:day, :categoryId, :units, :revenue) " +
+            "ON DUPLICATE KEY UPDATE units_sold = units_sold + :units, revenue = revenue + :revenue",
+            nativeQuery = true)
+    void add(@Param("day") LocalDate day, @Param("categoryId") Integer categoryId,
+             @Param("units") long units, @Param("revenue") BigDecimal revenue);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_category_sales (sale_date, category_id, units_sold, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), COALESCE(p.category_id, 0), SUM(oi.quantity), SUM(oi.price * oi.quantity) " +
+            "FROM order_items oi " +
+            "JOIN orders o ON o.id = oi.order_id " +
+            "JOIN product_variants pv ON pv.id = oi.product_variant_id " +
+            "JOIN products p ON p.id = pv.product_id " +
+            "WHERE o.status = 'DELIVERED' " +
+            "GROUP BY CAST(o.created_at AS DATE), COALESCE(p.category_id, 0)",
+            nativeQuery = true)
+    int rebuildFromOrders();
+}
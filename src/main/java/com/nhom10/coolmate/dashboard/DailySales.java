@@ -0,0 +1,36 @@
+package com.nhom10.coolmate.dashboard;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Tổng hợp doanh số theo ngày (ngày đặt hàng) của các đơn đã hoàn thành (DELIVERED).
+ * Được cộng dồn khi đơn hàng vào trạng thái DELIVERED, để Dashboard không phải quét bảng orders.
+ */
+@Entity
+@Table(name = "daily_sales")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySales {
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    // Tổng tiền thanh toán (orders.total, đã trừ giảm giá)
+    @Column(name = "revenue", nullable = false, precision = 15, scale = 2)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,43 @@
+package com.nhom10.coolmate.dashboard;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate> {
+
+    @Query("SELECT COALESCE(SUM(d.revenue), 0) FROM DailySales d")
+    BigDecimal sumRevenue();
+
+    List<DailySales> findBySaleDateGreaterThanEqualOrderBySaleDate(LocalDate from);
+
+    List<DailySales> findAllByOrderBySaleDate();
+
+    // Cộng dồn, tạo dòng nếu ngày chưa có
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales (sale_date, order_count, units_sold, revenue) " +
+            "VALUES (:day, :orders, :units, :revenue) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + :orders, " +
+            "  units_sold = units_sold + :units, revenue = revenue + :revenue",
+            nativeQuery = true)
+    void add(@Param("day") LocalDate day, @Param("orders") long orders,
+             @Param("units") long units, @Param("revenue") BigDecimal revenue);
+
+    // Dựng lại từ bảng orders (số lượng sản phẩm mỗi đơn tính trước trong bảng dẫn xuất)
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales (sale_date, order_count, units_sold, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), COUNT(*), COALESCE(SUM(u.units), 0), COALESCE(SUM(o.total), 0) " +
+            "FROM orders o " +
+            "LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items GROUP BY order_id) u ON u.order_id = o.id " +
+            "WHERE o.status = 'DELIVERED' " +
+            "GROUP BY CAST(o.created_at AS DATE)",
+            nativeQuery = true)
+    int rebuildFromOrders();
+}
@@ -0,0 +1,43 @@
+package com.nhom10.coolmate.dashboard;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Số lượng bán và doanh thu (giá lúc mua x số lượng) theo ngày của từng biến thể sản phẩm
+@Entity
+@Table(name = "daily_variant_sales")
+@IdClass(DailyVariantSales.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyVariantSales {
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Column(name = "variant_id")
+    private Integer variantId;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(name = "revenue", nullable = false, precision = 15, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private Integer variantId;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nhom10.coolmate.dashboard;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyVariantSalesRepository extends JpaRepository<DailyVariantSales, DailyVariantSales.Key> {
+
+    // Tổng số lượng bán theo biến thể: [biến thể, sản phẩm, danh mục (có thể null), tổng số lượng]
+    @Query("SELECT v.id, p.id, c.id, SUM(d.unitsSold) " +
+            "FROM DailyVariantSales d JOIN ProductVariant v ON v.id = d.variantId JOIN v.product p LEFT JOIN p.category c " +
+            "GROUP BY v.id, p.id, c.id")
+    List<Object[]> sumUnitsByVariant();
+
+    // Tổng số lượng bán theo sản phẩm: [sản phẩm, tổng số lượng]
+    @Query("SELECT p.id, SUM(d.unitsSold) " +
+            "FROM DailyVariantSales d JOIN ProductVariant v ON v.id = d.variantId JOIN v.product p " +
+            "WHERE p.id IN :productIds GROUP BY p.id")
+    List<Object[]> sumUnitsByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Số lượng theo (ngày, biến thể) từ một ngày trở đi: [ngày, biến thể, số lượng]
+    @Query("SELECT d.saleDate, d.variantId, d.unitsSold FROM DailyVariantSales d WHERE d.saleDate >= :from")
+    List<Object[]> findUnitsSince(@Param("from") LocalDate from);
+
+    // Toàn bộ dòng (ngày, biến thể) kèm các chiều phân tích: [ngày, biến thể, danh mục, size, màu, số lượng, doanh thu]
+    @Query("SELECT d.saleDate, d.variantId, c.name, s.sizeName, v.color, d.unitsSold, d.revenue " +
+            "FROM DailyVariantSales d LEFT JOIN ProductVariant v ON v.id = d.variantId " +
+            "LEFT JOIN v.product p LEFT JOIN p.category c LEFT JOIN v.size s " +
+            "ORDER BY d.saleDate, d.variantId")
+    List<Object[]> findAllWithDimensions();
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_variant_sales (sale_date, variant_id, units_sold, revenue) " +
+            "VALUES (:day, :variantId, :units, :revenue) " +
+            "ON DUPLICATE KEY UPDATE units_sold = units_sold + :units, revenue = revenue + :revenue",
+            nativeQuery = true)
+    void add(@Param("day") LocalDate day, @Param("variantId") Integer variantId,
+             @Param("units") long units, @Param("revenue") BigDecimal revenue);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_variant_sales (sale_date, variant_id, units_sold, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), oi.product_variant_id, SUM(oi.quantity), SUM(oi.price * oi.quantity) " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.status = 'DELIVERED' " +
+            "GROUP BY CAST(o.created_at AS DATE), oi.product_variant_id",
+            nativeQuery = true)
+    int rebuildFromOrders();
+}
@@ -0,0 +1,25 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện đẩy xuống trang chủ Admin qua SSE (tên sự kiện SSE = type).
+ * oldStatus chỉ có ở sự kiện đổi trạng thái; revenueDelta chỉ có ở sự kiện doanh thu.
+ */
+public record DashboardEvent(String type,
+                             Integer orderId,
+                             String orderCode,
+                             OrderStatus oldStatus,
+                             OrderStatus status,
+                             BigDecimal total,
+                             BigDecimal revenueDelta,
+                             boolean createdToday,
+                             LocalDateTime at) {
+
+    public static final String ORDER_CREATED = "order-created";
+    public static final String ORDER_STATUS = "order-status";
+    public static final String REVENUE_DELTA = "revenue-delta";
+}
@@ -0,0 +1,260 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.Order;
+import com.nhom10.coolmate.order.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Phát sự kiện đơn hàng tới các trang chủ Admin đang mở (Server-Sent Events).
+ * - OrderService gọi publish trong transaction; sự kiện chỉ được đưa vào hàng đợi sau khi commit.
+ * - Hàng đợi vào có giới hạn: đầy thì bỏ sự kiện, luồng xử lý request không bao giờ bị chặn.
+ * - 1 luồng fan-out duy nhất chia sự kiện vào bộ đệm riêng (có giới hạn) của từng người xem, không tự gửi.
+ *   Mỗi người xem có 1 tác vụ gửi riêng (tối đa 1 tác vụ/người) trên pool luồng gửi, nên 1 kết nối chậm không chặn người khác.
+ * - Người xem nhận chậm làm đầy bộ đệm, lỗi khi gửi, hoặc 1 lần gửi quá SEND_TIMEOUT sẽ bị ngắt kết nối
+ *   (trình duyệt tự kết nối lại). Luồng fan-out kiểm tra thời hạn gửi sau mỗi WATCHDOG_INTERVAL.
+ */
+@Component
+public class DashboardEventHub {
+
+    static final int SUBSCRIBER_BUFFER = 64;
+    private static final int INBOX_CAPACITY = 1024;
+    private static final Duration HEARTBEAT = Duration.ofSeconds(20);
+    private static final Duration EMITTER_TIMEOUT = Duration.ofMinutes(30);
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration WATCHDOG_INTERVAL = Duration.ofSeconds(1);
+
+    private final BlockingQueue<DashboardEvent> inbox = new ArrayBlockingQueue<>(INBOX_CAPACITY);
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Duration sendTimeout;
+    private final Duration watchdogInterval;
+
+    private volatile boolean running;
+    private Thread fanOutThread;
+    // Số luồng không vượt quá số người xem: mỗi người xem chỉ có tối đa 1 tác vụ gửi đang chạy
+    private ExecutorService senders;
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<DashboardEvent> buffer = new ArrayBlockingQueue<>(SUBSCRIBER_BUFFER);
+        // Đã có tác vụ gửi được xếp lịch / đang chạy cho người xem này
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        // Thời điểm bắt đầu lần gửi đang chạy (0 = không gửi)
+        private volatile long sendStartedNanos;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public DashboardEventHub() {
+        this(SEND_TIMEOUT, WATCHDOG_INTERVAL);
+    }
+
+    DashboardEventHub(Duration sendTimeout, Duration watchdogInterval) {
+        this.sendTimeout = sendTimeout;
+        this.watchdogInterval = watchdogInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        senders = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "dashboard-sse-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fanOutThread = new Thread(this::fanOutLoop, "dashboard-sse-fanout");
+        fanOutThread.setDaemon(true);
+        fanOutThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        fanOutThread.interrupt();
+        for (Subscriber subscriber : subscribers) {
+            subscribers.remove(subscriber);
+            subscriber.closed = true;
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+
+    // --- 1. Admin mở kết nối SSE: gửi ngay số liệu tổng quan hiện tại, sau đó là các sự kiện mới ---
+    public SseEmitter subscribe(DashboardSummaryDTO initialSummary) throws IOException {
+        return subscribe(new SseEmitter(EMITTER_TIMEOUT.toMillis()), initialSummary);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, DashboardSummaryDTO initialSummary) throws IOException {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        emitter.send(SseEmitter.event().name("summary").data(initialSummary));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    // --- 2. Đơn hàng mới ---
+    public void orderCreated(Order order) {
+        publish(new DashboardEvent(DashboardEvent.ORDER_CREATED, order.getId(), order.getOrderCode(),
+                null, order.getStatus(), order.getTotal(), null, true, LocalDateTime.now()));
+    }
+
+    // --- 3. Đổi trạng thái đơn (kèm sự kiện doanh thu khi đơn vào trạng thái DELIVERED) ---
+    public void orderStatusChanged(Order order, OrderStatus oldStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean createdToday = order.getCreatedAt() != null
+                && order.getCreatedAt().toLocalDateTime().toLocalDate().equals(LocalDate.now());
+        publish(new DashboardEvent(DashboardEvent.ORDER_STATUS, order.getId(), order.getOrderCode(),
+                oldStatus, order.getStatus(), order.getTotal(), null, createdToday, now));
+
+        if (oldStatus != OrderStatus.DELIVERED && order.getStatus() == OrderStatus.DELIVERED) {
+            publish(new DashboardEvent(DashboardEvent.REVENUE_DELTA, order.getId(), order.getOrderCode(),
+                    oldStatus, order.getStatus(), order.getTotal(), order.getTotal(), createdToday, now));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // ================= HELPER METHODS =================
+
+    // Chỉ phát khi transaction hiện tại commit (rollback thì không ai thấy sự kiện)
+    private void publish(DashboardEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    inbox.offer(event);
+                }
+            });
+        } else {
+            inbox.offer(event);
+        }
+    }
+
+    private void fanOutLoop() {
+        List<DashboardEvent> batch = new ArrayList<>();
+        long lastActivity = System.nanoTime();
+        while (running) {
+            try {
+                DashboardEvent first = inbox.poll(watchdogInterval.toMillis(), TimeUnit.MILLISECONDS);
+                dropStalled();
+                if (first == null) {
+                    if (System.nanoTime() - lastActivity >= HEARTBEAT.toNanos()) {
+                        // Không có gì mới: gửi comment giữ kết nối, đồng thời phát hiện kết nối đã chết
+                        lastActivity = System.nanoTime();
+                        for (Subscriber subscriber : subscribers) {
+                            subscriber.heartbeatDue.set(true);
+                            scheduleDrain(subscriber);
+                        }
+                    }
+                    continue;
+                }
+                lastActivity = System.nanoTime();
+                batch.add(first);
+                inbox.drainTo(batch);
+                for (DashboardEvent event : batch) {
+                    for (Subscriber subscriber : subscribers) {
+                        if (!subscriber.buffer.offer(event)) {
+                            drop(subscriber);
+                        }
+                    }
+                }
+                batch.clear();
+                subscribers.forEach(this::scheduleDrain);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Người xem có 1 lần gửi chạy quá thời hạn (mạng/trình duyệt không nhận): ngắt kết nối
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > sendTimeout.toNanos()) {
+                drop(subscriber);
+            }
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Đang tắt ứng dụng
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    // Chạy trên luồng gửi: gửi hết bộ đệm của 1 người xem
+    private void drain(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                DashboardEvent event;
+                while (!subscriber.closed && (event = subscriber.buffer.poll()) != null) {
+                    send(subscriber, SseEmitter.event().name(event.type()).data(event));
+                }
+                if (!subscriber.closed && subscriber.heartbeatDue.getAndSet(false)) {
+                    send(subscriber, SseEmitter.event().comment("ping"));
+                }
+                subscriber.draining.set(false);
+                // Sự kiện đến sau lần poll cuối mà không xếp được tác vụ mới: tự gửi tiếp
+                boolean pending = !subscriber.buffer.isEmpty() || subscriber.heartbeatDue.get();
+                if (!pending || !subscriber.draining.compareAndSet(false, true)) return;
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber);
+        }
+        // Bị ngắt kết nối (có thể trong lúc đang gửi): đóng emitter tại đây, không đóng từ luồng fan-out
+        subscriber.emitter.complete();
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStartedNanos = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendStartedNanos = 0;
+        }
+    }
+
+    // Không chặn: đánh dấu đóng rồi để tác vụ gửi của người xem đó đóng emitter
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.closed = true;
+            subscriber.buffer.clear();
+            scheduleDrain(subscriber);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSummaryDTO {
+    // Số đơn theo từng trạng thái (đủ mọi trạng thái, kể cả 0)
+    @Builder.Default
+    private Map<OrderStatus, Long> ordersByStatus = new EnumMap<>(OrderStatus.class);
+    private long totalOrders;
+    private long pendingOrders;
+
+    // Trong ngày hôm nay (không tính đơn đã hủy)
+    private long todayOrders;
+    private BigDecimal todayRevenue;
+    private long newUsersToday;
+
+    // Thời điểm lấy số liệu (số liệu được cache ngắn hạn)
+    private LocalDateTime loadedAt;
+}
@@ -0,0 +1,114 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.OrderRepository;
+import com.nhom10.coolmate.order.OrderStatus;
+import com.nhom10.coolmate.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Số liệu tổng quan của trang chủ Admin (đơn theo trạng thái, doanh thu và tài khoản mới hôm nay),
+ * lấy bằng 1 câu GROUP BY và giữ trong bộ nhớ một thời gian ngắn: Admin bấm tải lại liên tục
+ * cũng không chạm DB cho tới khi hết TTL.
+ */
+@Service
+public class DashboardSummaryService {
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final Duration ttl;
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(DashboardSummaryDTO summary, long expiresAtNanos) {}
+
+    public DashboardSummaryService(OrderRepository orderRepository,
+                                   UserRepository userRepository,
+                                   @Value("${coolmate.dashboard.summary-ttl-seconds:15}") long ttlSeconds) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    // --- 1. Lấy số liệu tổng quan (từ cache nếu còn hạn) ---
+    public DashboardSummaryDTO getSummary() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.expiresAtNanos() < 0) {
+            return current.summary();
+        }
+        return refresh();
+    }
+
+    // --- 2. Bỏ cache (lần xem tiếp theo sẽ truy vấn lại) ---
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    // ================= HELPER METHODS =================
+
+    // Chỉ 1 luồng truy vấn khi cache hết hạn, các luồng đang chờ dùng luôn kết quả vừa nạp
+    private synchronized DashboardSummaryDTO refresh() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.expiresAtNanos() < 0) {
+            return current.summary();
+        }
+        DashboardSummaryDTO summary = load();
+        snapshot = new Snapshot(summary, System.nanoTime() + ttl.toNanos());
+        return summary;
+    }
+
+    private DashboardSummaryDTO load() {
+        Timestamp startOfToday = Timestamp.valueOf(LocalDate.now().atStartOfDay());
+        List<Object[]> rows = orderRepository.summarizeByStatus(startOfToday);
+
+        Map<OrderStatus, Long> byStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, 0L);
+        }
+
+        long totalOrders = 0;
+        long todayOrders = 0;
+        BigDecimal todayRevenue = BigDecimal.ZERO;
+        for (Object[] row : rows) {
+            OrderStatus status = (OrderStatus) row[0];
+            long count = ((Number) row[1]).longValue();
+            byStatus.put(status, count);
+            totalOrders += count;
+
+            if (status != OrderStatus.CANCELLED) {
+                todayOrders += ((Number) row[2]).longValue();
+                todayRevenue = todayRevenue.add(toBigDecimal(row[3]));
+            }
+        }
+
+        // Số tài khoản mới đi kèm mỗi dòng; chưa có đơn nào thì phải đếm riêng
+        long newUsers = rows.isEmpty()
+                ? userRepository.countByCreatedAtGreaterThanEqual(startOfToday)
+                : ((Number) rows.get(0)[4]).longValue();
+
+        return DashboardSummaryDTO.builder()
+                .ordersByStatus(byStatus)
+                .totalOrders(totalOrders)
+                .pendingOrders(byStatus.get(OrderStatus.PENDING))
+                .todayOrders(todayOrders)
+                .todayRevenue(todayRevenue)
+                .newUsersToday(newUsers)
+                .loadedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        if (value instanceof BigDecimal decimal) return decimal;
+        return new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,85 @@
+package com.nhom10.coolmate.dashboard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Bảng xếp hạng top-k trên bộ đếm chính xác (id -> số lượng).
+ * Danh sách top được giữ sẵn, sắp giảm dần theo số lượng (hòa thì id nhỏ trước):
+ * - Tăng: chỉ dịch phần tử lên trong danh sách top, hoặc thay phần tử cuối - O(k).
+ * - Giảm (hết khung thời gian) một phần tử đang trong top: quét lại bộ đếm - O(n log k), hiếm khi xảy ra.
+ * Đọc top chỉ là sao chép tối đa k phần tử. Không tự đồng bộ: nơi sử dụng giữ lock.
+ */
+final class Leaderboard {
+
+    record Entry(int id, long count) {}
+
+    private final int capacity;
+    private final Map<Integer, Long> counts = new HashMap<>();
+    private final List<Entry> top = new ArrayList<>();
+
+    Leaderboard(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void add(int id, long delta) {
+        if (delta == 0) return;
+        long count = counts.merge(id, delta, Long::sum);
+        if (count <= 0) counts.remove(id);
+
+        int position = indexOf(id);
+        if (delta < 0) {
+            if (position >= 0) rescan();
+            return;
+        }
+        Entry entry = new Entry(id, count);
+        if (position >= 0) {
+            top.remove(position);
+        } else if (top.size() >= capacity) {
+            if (!ranksBefore(entry, top.get(top.size() - 1))) return;
+            top.remove(top.size() - 1);
+        }
+        int insertAt = 0;
+        while (insertAt < top.size() && ranksBefore(top.get(insertAt), entry)) {
+            insertAt++;
+        }
+        top.add(insertAt, entry);
+    }
+
+    List<Entry> top(int limit) {
+        return List.copyOf(top.subList(0, Math.min(limit, top.size())));
+    }
+
+    long count(int id) {
+        return counts.getOrDefault(id, 0L);
+    }
+
+    // ================= HELPER METHODS =================
+
+    private int indexOf(int id) {
+        for (int i = 0; i < top.size(); i++) {
+            if (top.get(i).id() == id) return i;
+        }
+        return -1;
+    }
+
+    // Giữ k phần tử lớn nhất bằng heap nhỏ nhất (gốc = phần tử xếp sau cùng)
+    private void rescan() {
+        PriorityQueue<Entry> heap = new PriorityQueue<>(capacity + 1, (a, b) -> ranksBefore(a, b) ? 1 : -1);
+        counts.forEach((id, count) -> {
+            heap.add(new Entry(id, count));
+            if (heap.size() > capacity) heap.poll();
+        });
+        top.clear();
+        while (!heap.isEmpty()) {
+            top.add(0, heap.poll());
+        }
+    }
+
+    private static boolean ranksBefore(Entry a, Entry b) {
+        return a.count() > b.count() || (a.count() == b.count() && a.id() < b.id());
+    }
+}
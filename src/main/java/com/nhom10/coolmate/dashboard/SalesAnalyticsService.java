@@ -0,0 +1,192 @@
+package com.nhom10.coolmate.dashboard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Báo cáo doanh số theo khoảng thời gian bất kỳ (ngày / tuần / tháng), có thể phân theo danh mục, size hoặc màu.
+ * Trả lời từ SalesCube trong bộ nhớ, không truy vấn DB:
+ * - Dựng 1 lần (lần xem đầu tiên) từ các bảng tổng hợp theo ngày.
+ * - Sau đó SalesRollupService đẩy delta của từng đơn hàng vào (sau khi commit), khối dữ liệu được cập nhật tại chỗ.
+ * - Delta chồng lên lúc đang đọc DB (có thể đã hoặc chưa nằm trong dữ liệu đọc được) khiến lần đọc đó bị bỏ và đọc lại,
+ *   nên không có đơn nào bị cộng 2 lần hay bị sót.
+ * - Khi Admin "Tính lại số liệu", khối dữ liệu bị bỏ và dựng lại từ đầu.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesAnalyticsService {
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final DailySalesRepository dailySalesRepository;
+    private final DailyVariantSalesRepository dailyVariantSalesRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    // lock: trạng thái ngắn (cube, delta đang chờ); loadLock: chỉ 1 luồng đọc DB để dựng khối dữ liệu
+    private final Object lock = new Object();
+    private final Object loadLock = new Object();
+    private volatile SalesCube cube;
+    // Số đơn hàng đã ghi delta nhưng transaction chưa kết thúc
+    private int inFlightDeltas;
+    private boolean loading;
+    // Có delta chồng lên lần đọc DB hiện tại: không biết delta đó đã nằm trong dữ liệu đọc được hay chưa
+    private boolean loadDirty;
+
+    // --- 1. Báo cáo doanh số ---
+    public SalesReportDTO report(LocalDate from, LocalDate to, SalesGranularity granularity, SalesDimension dimension) {
+        if (to.isBefore(from)) {
+            LocalDate swap = from;
+            from = to;
+            to = swap;
+        }
+        SalesCube current = currentCube();
+
+        long started = System.nanoTime();
+        List<SalesReportDTO.Row> rows = current.aggregate(from, to, granularity, dimension);
+
+        long units = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        Long orders = dimension == SalesDimension.NONE ? 0L : null;
+        for (SalesReportDTO.Row row : rows) {
+            units += row.getUnits();
+            revenue = revenue.add(row.getRevenue());
+            if (orders != null) orders += row.getOrders();
+        }
+
+        return SalesReportDTO.builder()
+                .from(from)
+                .to(to)
+                .granularity(granularity)
+                .dimension(dimension)
+                .rows(rows)
+                .totalOrders(orders)
+                .totalUnits(units)
+                .totalRevenue(revenue)
+                .averageOrderValue(orders != null ? SalesCube.averageOf(revenue, orders) : null)
+                .elapsedMicros((System.nanoTime() - started) / 1_000)
+                .build();
+    }
+
+    // --- 2. Delta của 1 đơn hàng (gọi trong transaction của SalesRollupService, áp vào sau khi commit) ---
+    void recordDelta(LocalDate day, long orders, long units, BigDecimal revenue, List<SalesCube.VariantSale> variantSales) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyDelta(day, orders, units, revenue, variantSales);
+            return;
+        }
+        synchronized (lock) {
+            inFlightDeltas++;
+            if (loading) loadDirty = true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Bớt "đang chờ" và áp delta trong cùng 1 lần giữ lock: không để lần dựng lại nào chen vào giữa
+                // (lần dựng đó đã thấy đơn vừa commit, áp thêm delta sẽ cộng đơn 2 lần)
+                synchronized (lock) {
+                    inFlightDeltas--;
+                    if (status == STATUS_COMMITTED) {
+                        applyDelta(day, orders, units, revenue, variantSales);
+                    }
+                }
+            }
+        });
+    }
+
+    // --- 3. Bỏ khối dữ liệu (dựng lại ở lần xem tiếp theo), sau khi transaction hiện tại commit ---
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    discardCube();
+                }
+            });
+        } else {
+            discardCube();
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    private void applyDelta(LocalDate day, long orders, long units, BigDecimal revenue, List<SalesCube.VariantSale> variantSales) {
+        synchronized (lock) {
+            if (loading) {
+                // Đang đọc DB: delta có thể đã (hoặc chưa) nằm trong dữ liệu đọc được -> đọc lại thay vì đoán
+                loadDirty = true;
+            } else if (cube != null) {
+                cube = cube.plus(day, orders, units, revenue, variantSales);
+            }
+        }
+    }
+
+    private void discardCube() {
+        synchronized (lock) {
+            cube = null;
+            if (loading) loadDirty = true;
+        }
+    }
+
+    private SalesCube currentCube() {
+        SalesCube current = cube;
+        if (current != null) return current;
+        synchronized (loadLock) {
+            current = cube;
+            if (current != null) return current;
+
+            SalesCube loaded = null;
+            for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+                synchronized (lock) {
+                    loading = true;
+                    // Đơn đã ghi delta nhưng chưa commit xong: không biết lần đọc này có thấy đơn đó hay không
+                    loadDirty = inFlightDeltas > 0;
+                }
+                try {
+                    loaded = load();
+                } finally {
+                    synchronized (lock) {
+                        loading = false;
+                    }
+                }
+                synchronized (lock) {
+                    if (!loadDirty) {
+                        cube = loaded;
+                        return loaded;
+                    }
+                }
+            }
+            // Đơn hàng commit liên tục trong lúc đọc: trả kết quả vừa đọc cho lần xem này, không giữ lại, lần xem sau đọc lại
+            return loaded;
+        }
+    }
+
+    // Hai bảng tổng hợp được đọc trong cùng 1 transaction chỉ đọc
+    private SalesCube load() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> buildCube());
+    }
+
+    private SalesCube buildCube() {
+        List<DailySales> daily = dailySalesRepository.findAllByOrderBySaleDate();
+        List<Object[]> variantRows = dailyVariantSalesRepository.findAllWithDimensions();
+
+        SalesCube.Builder builder = new SalesCube.Builder(daily.size(), variantRows.size());
+        for (DailySales day : daily) {
+            builder.day(day.getSaleDate(), day.getOrderCount(), day.getUnitsSold(), day.getRevenue());
+        }
+        for (Object[] row : variantRows) {
+            builder.variant((LocalDate) row[0], new SalesCube.VariantSale(
+                    (Integer) row[1], (String) row[2], (String) row[3], (String) row[4],
+                    ((Number) row[5]).longValue(), (BigDecimal) row[6]));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,367 @@
+package com.nhom10.coolmate.dashboard;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Khối dữ liệu doanh số dạng cột trong bộ nhớ, bất biến: mỗi lần cập nhật tạo bản mới (copy-on-write),
+ * nên các báo cáo đang chạy không bao giờ thấy dữ liệu dở dang.
+ * - Cột theo ngày (daily_sales): ngày (epoch day), số đơn, số lượng, doanh thu.
+ * - Cột theo (ngày, biến thể) (daily_variant_sales): ngày, slot biến thể, số lượng, doanh thu.
+ * - Mỗi slot biến thể mang mã danh mục / size / màu trỏ vào từ điển tên, gom nhóm chỉ là so sánh int.
+ * Cả hai nhóm cột sắp tăng dần theo ngày: khoảng thời gian được tìm bằng tìm kiếm nhị phân.
+ * Doanh thu lưu bằng long theo đơn vị 1/100 đồng (khớp DECIMAL(15,2)).
+ */
+final class SalesCube {
+
+    static final String UNKNOWN = "Không rõ";
+
+    // Một biến thể trong 1 đơn hàng (hoặc 1 dòng daily_variant_sales) kèm các chiều phân tích
+    record VariantSale(int variantId, String category, String size, String color, long units, BigDecimal revenue) {}
+
+    // --- Cột theo ngày ---
+    private final int[] days;
+    private final long[] dayOrders;
+    private final long[] dayUnits;
+    private final long[] dayRevenue;
+
+    // --- Cột theo (ngày, biến thể) ---
+    private final int[] factDays;
+    private final int[] factSlots;
+    private final long[] factUnits;
+    private final long[] factRevenue;
+
+    private final Dimensions dimensions;
+
+    private SalesCube(int[] days, long[] dayOrders, long[] dayUnits, long[] dayRevenue,
+                      int[] factDays, int[] factSlots, long[] factUnits, long[] factRevenue,
+                      Dimensions dimensions) {
+        this.days = days;
+        this.dayOrders = dayOrders;
+        this.dayUnits = dayUnits;
+        this.dayRevenue = dayRevenue;
+        this.factDays = factDays;
+        this.factSlots = factSlots;
+        this.factUnits = factUnits;
+        this.factRevenue = factRevenue;
+        this.dimensions = dimensions;
+    }
+
+    // --- 1. Dựng từ bảng tổng hợp: thêm các dòng theo thứ tự ngày tăng dần rồi gọi build() ---
+    static final class Builder {
+        private final int[] days;
+        private final long[] dayOrders;
+        private final long[] dayUnits;
+        private final long[] dayRevenue;
+        private final int[] factDays;
+        private final int[] factSlots;
+        private final long[] factUnits;
+        private final long[] factRevenue;
+        private final Dimensions dimensions = new Dimensions();
+        private int dayCount;
+        private int factCount;
+
+        Builder(int dailyRows, int variantRows) {
+            days = new int[dailyRows];
+            dayOrders = new long[dailyRows];
+            dayUnits = new long[dailyRows];
+            dayRevenue = new long[dailyRows];
+            factDays = new int[variantRows];
+            factSlots = new int[variantRows];
+            factUnits = new long[variantRows];
+            factRevenue = new long[variantRows];
+        }
+
+        Builder day(LocalDate day, long orders, long units, BigDecimal revenue) {
+            days[dayCount] = (int) day.toEpochDay();
+            dayOrders[dayCount] = orders;
+            dayUnits[dayCount] = units;
+            dayRevenue[dayCount] = toCents(revenue);
+            dayCount++;
+            return this;
+        }
+
+        Builder variant(LocalDate day, VariantSale sale) {
+            factDays[factCount] = (int) day.toEpochDay();
+            factSlots[factCount] = dimensions.slotOf(sale);
+            factUnits[factCount] = sale.units();
+            factRevenue[factCount] = toCents(sale.revenue());
+            factCount++;
+            return this;
+        }
+
+        SalesCube build() {
+            return new SalesCube(
+                    Arrays.copyOf(days, dayCount), Arrays.copyOf(dayOrders, dayCount),
+                    Arrays.copyOf(dayUnits, dayCount), Arrays.copyOf(dayRevenue, dayCount),
+                    Arrays.copyOf(factDays, factCount), Arrays.copyOf(factSlots, factCount),
+                    Arrays.copyOf(factUnits, factCount), Arrays.copyOf(factRevenue, factCount),
+                    dimensions);
+        }
+    }
+
+    // --- 2. Bản mới đã cộng thêm delta của 1 đơn hàng ---
+    SalesCube plus(LocalDate day, long orders, long units, BigDecimal revenue, List<VariantSale> variantSales) {
+        int epochDay = (int) day.toEpochDay();
+
+        // A. Cột theo ngày: cộng vào ngày đã có, hoặc chèn ngày mới đúng vị trí
+        int[] newDays = days;
+        long[] newOrders;
+        long[] newUnits;
+        long[] newRevenue;
+        int index = Arrays.binarySearch(days, epochDay);
+        if (index >= 0) {
+            newOrders = dayOrders.clone();
+            newUnits = dayUnits.clone();
+            newRevenue = dayRevenue.clone();
+        } else {
+            index = -index - 1;
+            newDays = insert(days, index, epochDay);
+            newOrders = insert(dayOrders, index, 0);
+            newUnits = insert(dayUnits, index, 0);
+            newRevenue = insert(dayRevenue, index, 0);
+        }
+        newOrders[index] += orders;
+        newUnits[index] += units;
+        newRevenue[index] += toCents(revenue);
+
+        // B. Cột theo (ngày, biến thể): biến thể chưa gặp thì mở rộng từ điển trên bản sao
+        Dimensions newDimensions = dimensions;
+        Map<Integer, long[]> deltaBySlot = new LinkedHashMap<>();
+        for (VariantSale sale : variantSales) {
+            if (newDimensions == dimensions && !dimensions.contains(sale.variantId())) {
+                newDimensions = dimensions.copy();
+            }
+            int slot = newDimensions.slotOf(sale);
+            long[] delta = deltaBySlot.computeIfAbsent(slot, s -> new long[2]);
+            delta[0] += sale.units();
+            delta[1] += toCents(sale.revenue());
+        }
+
+        // Các slot đã có dòng trong ngày này: cộng tại chỗ; còn lại chèn thêm dòng mới cuối ngày
+        int from = lowerBound(factDays, epochDay);
+        int to = lowerBound(factDays, epochDay + 1);
+        Set<Integer> existing = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            if (deltaBySlot.containsKey(factSlots[i])) existing.add(factSlots[i]);
+        }
+        int added = deltaBySlot.size() - existing.size();
+
+        int size = factDays.length + added;
+        int[] nextDays = Arrays.copyOf(factDays, size);
+        int[] nextSlots = Arrays.copyOf(factSlots, size);
+        long[] nextUnits = Arrays.copyOf(factUnits, size);
+        long[] nextRevenue = Arrays.copyOf(factRevenue, size);
+        // Dời phần sau ngày này ra sau để chừa chỗ cho các dòng mới
+        System.arraycopy(factDays, to, nextDays, to + added, factDays.length - to);
+        System.arraycopy(factSlots, to, nextSlots, to + added, factSlots.length - to);
+        System.arraycopy(factUnits, to, nextUnits, to + added, factUnits.length - to);
+        System.arraycopy(factRevenue, to, nextRevenue, to + added, factRevenue.length - to);
+
+        for (int i = from; i < to; i++) {
+            long[] delta = deltaBySlot.get(factSlots[i]);
+            if (delta != null) {
+                nextUnits[i] += delta[0];
+                nextRevenue[i] += delta[1];
+            }
+        }
+        int position = to;
+        for (Map.Entry<Integer, long[]> entry : deltaBySlot.entrySet()) {
+            if (existing.contains(entry.getKey())) continue;
+            nextDays[position] = epochDay;
+            nextSlots[position] = entry.getKey();
+            nextUnits[position] = entry.getValue()[0];
+            nextRevenue[position] = entry.getValue()[1];
+            position++;
+        }
+
+        return new SalesCube(newDays, newOrders, newUnits, newRevenue,
+                nextDays, nextSlots, nextUnits, nextRevenue, newDimensions);
+    }
+
+    // --- 3. Gom nhóm theo kỳ (và theo chiều phân tích nếu có) trong khoảng [from, to] ---
+    List<SalesReportDTO.Row> aggregate(LocalDate from, LocalDate to, SalesGranularity granularity, SalesDimension dimension) {
+        int firstDay = (int) from.toEpochDay();
+        int lastDay = (int) to.toEpochDay();
+        List<SalesReportDTO.Row> rows = new ArrayList<>();
+
+        if (dimension == SalesDimension.NONE) {
+            // period (epoch day) -> [số đơn, số lượng, doanh thu]
+            Map<Long, long[]> totals = new LinkedHashMap<>();
+            PeriodLookup periods = new PeriodLookup(granularity);
+            for (int i = lowerBound(days, firstDay), end = lowerBound(days, lastDay + 1); i < end; i++) {
+                long[] acc = totals.computeIfAbsent((long) periods.of(days[i]), p -> new long[3]);
+                acc[0] += dayOrders[i];
+                acc[1] += dayUnits[i];
+                acc[2] += dayRevenue[i];
+            }
+            totals.forEach((period, acc) -> {
+                if (acc[0] == 0 && acc[2] == 0) return;
+                LocalDate start = LocalDate.ofEpochDay(period);
+                BigDecimal revenue = fromCents(acc[2]);
+                rows.add(SalesReportDTO.Row.builder()
+                        .periodStart(start).period(granularity.label(start))
+                        .orders(acc[0]).units(acc[1]).revenue(revenue)
+                        .averageOrderValue(averageOf(revenue, acc[0]))
+                        .build());
+            });
+            return rows;
+        }
+
+        // (period << 32 | mã nhóm) -> [số lượng, doanh thu]
+        int[] codes = dimensions.codes(dimension);
+        Map<Long, long[]> totals = new HashMap<>();
+        PeriodLookup periods = new PeriodLookup(granularity);
+        for (int i = lowerBound(factDays, firstDay), end = lowerBound(factDays, lastDay + 1); i < end; i++) {
+            long key = ((long) periods.of(factDays[i]) << 32) | codes[factSlots[i]];
+            long[] acc = totals.computeIfAbsent(key, k -> new long[2]);
+            acc[0] += factUnits[i];
+            acc[1] += factRevenue[i];
+        }
+        List<String> names = dimensions.names(dimension);
+        totals.forEach((key, acc) -> {
+            if (acc[0] == 0 && acc[1] == 0) return;
+            LocalDate start = LocalDate.ofEpochDay(key >> 32);
+            rows.add(SalesReportDTO.Row.builder()
+                    .periodStart(start).period(granularity.label(start))
+                    .group(names.get((int) (key & 0xFFFFFFFFL)))
+                    .units(acc[0]).revenue(fromCents(acc[1]))
+                    .build());
+        });
+        rows.sort(Comparator.comparing(SalesReportDTO.Row::getPeriodStart)
+                .thenComparing(SalesReportDTO.Row::getRevenue, Comparator.reverseOrder()));
+        return rows;
+    }
+
+    // ================= HELPER METHODS =================
+
+    static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    static BigDecimal averageOf(BigDecimal revenue, long orders) {
+        return orders > 0 ? revenue.divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP) : null;
+    }
+
+    // Vị trí đầu tiên có giá trị >= key (mảng đã sắp tăng dần)
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int[] insert(int[] source, int index, int value) {
+        int[] result = new int[source.length + 1];
+        System.arraycopy(source, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(source, index, result, index + 1, source.length - index);
+        return result;
+    }
+
+    private static long[] insert(long[] source, int index, long value) {
+        long[] result = new long[source.length + 1];
+        System.arraycopy(source, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(source, index, result, index + 1, source.length - index);
+        return result;
+    }
+
+    // Ngày -> ngày đầu kỳ; các dòng đã sắp theo ngày nên chỉ tính lại khi sang ngày khác
+    private static final class PeriodLookup {
+        private final SalesGranularity granularity;
+        private int lastDay = Integer.MIN_VALUE;
+        private int lastPeriod;
+
+        PeriodLookup(SalesGranularity granularity) {
+            this.granularity = granularity;
+        }
+
+        int of(int epochDay) {
+            if (epochDay != lastDay) {
+                lastDay = epochDay;
+                lastPeriod = (int) granularity.periodStart(LocalDate.ofEpochDay(epochDay)).toEpochDay();
+            }
+            return lastPeriod;
+        }
+    }
+
+    // Từ điển biến thể -> slot, và slot -> mã danh mục / size / màu (mỗi chiều 1 từ điển tên)
+    private static final class Dimensions {
+        private final Map<Integer, Integer> slots;
+        private final List<int[]> slotCodes;          // [danh mục, size, màu] theo slot
+        private final List<List<String>> names;       // theo chiều: mã -> tên
+        private final List<Map<String, Integer>> codes; // theo chiều: tên -> mã
+
+        Dimensions() {
+            this(new HashMap<>(), new ArrayList<>(),
+                    List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()),
+                    List.of(new HashMap<>(), new HashMap<>(), new HashMap<>()));
+        }
+
+        private Dimensions(Map<Integer, Integer> slots, List<int[]> slotCodes,
+                           List<List<String>> names, List<Map<String, Integer>> codes) {
+            this.slots = slots;
+            this.slotCodes = slotCodes;
+            this.names = names;
+            this.codes = codes;
+        }
+
+        Dimensions copy() {
+            return new Dimensions(new HashMap<>(slots), new ArrayList<>(slotCodes),
+                    names.stream().<List<String>>map(ArrayList::new).toList(),
+                    codes.stream().<Map<String, Integer>>map(HashMap::new).toList());
+        }
+
+        boolean contains(int variantId) {
+            return slots.containsKey(variantId);
+        }
+
+        int slotOf(VariantSale sale) {
+            Integer slot = slots.get(sale.variantId());
+            if (slot != null) return slot;
+            slotCodes.add(new int[]{code(0, sale.category()), code(1, sale.size()), code(2, sale.color())});
+            slots.put(sale.variantId(), slotCodes.size() - 1);
+            return slotCodes.size() - 1;
+        }
+
+        int[] codes(SalesDimension dimension) {
+            int axis = dimension.ordinal() - 1;
+            int[] result = new int[slotCodes.size()];
+            for (int slot = 0; slot < result.length; slot++) {
+                result[slot] = slotCodes.get(slot)[axis];
+            }
+            return result;
+        }
+
+        List<String> names(SalesDimension dimension) {
+            return names.get(dimension.ordinal() - 1);
+        }
+
+        private int code(int axis, String name) {
+            String key = name != null && !name.isBlank() ? name : UNKNOWN;
+            return codes.get(axis).computeIfAbsent(key, k -> {
+                names.get(axis).add(k);
+                return names.get(axis).size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.nhom10.coolmate.dashboard;
+
+// Chiều phân tích của báo cáo doanh số (NONE = chỉ tổng theo kỳ)
+public enum SalesDimension {
+    NONE, CATEGORY, SIZE, COLOR
+}
@@ -0,0 +1,31 @@
+package com.nhom10.coolmate.dashboard;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+// Độ chi tiết thời gian của báo cáo doanh số
+public enum SalesGranularity {
+    DAY, WEEK, MONTH;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MM/yyyy");
+
+    // Ngày đầu tiên của kỳ chứa ngày đã cho (tuần bắt đầu từ thứ Hai)
+    public LocalDate periodStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    public String label(LocalDate periodStart) {
+        return switch (this) {
+            case DAY -> periodStart.format(DAY_FORMAT);
+            case WEEK -> "Tuần " + periodStart.format(DAY_FORMAT);
+            case MONTH -> periodStart.format(MONTH_FORMAT);
+        };
+    }
+}
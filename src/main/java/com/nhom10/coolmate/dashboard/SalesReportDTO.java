@@ -0,0 +1,54 @@
+package com.nhom10.coolmate.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesReportDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private SalesGranularity granularity;
+    private SalesDimension dimension;
+
+    @Builder.Default
+    private List<Row> rows = new ArrayList<>();
+
+    // Tổng cả khoảng thời gian (totalOrders/averageOrderValue chỉ có khi không phân theo chiều nào)
+    private Long totalOrders;
+    private long totalUnits;
+    private BigDecimal totalRevenue;
+    private BigDecimal averageOrderValue;
+
+    // Thời gian tính báo cáo trong bộ nhớ (micro giây)
+    private long elapsedMicros;
+
+    /**
+     * Một dòng báo cáo: 1 kỳ (x 1 nhóm nếu có chiều phân tích).
+     * Không phân chiều: doanh thu là tổng tiền đơn (sau giảm giá voucher).
+     * Có phân chiều: doanh thu là giá x số lượng của từng sản phẩm (voucher áp cho cả đơn nên không chia được),
+     * và không có số đơn / giá trị đơn trung bình.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        private LocalDate periodStart;
+        private String period;
+        private String group;
+        private Long orders;
+        private long units;
+        private BigDecimal revenue;
+        private BigDecimal averageOrderValue;
+    }
+}
@@ -0,0 +1,150 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.Order;
+import com.nhom10.coolmate.order.OrderItem;
+import com.nhom10.coolmate.order.OrderItemRepository;
+import com.nhom10.coolmate.order.OrderRepository;
+import com.nhom10.coolmate.order.OrderStatus;
+import com.nhom10.coolmate.product.CoPurchaseIndex;
+import com.nhom10.coolmate.product.Product;
+import com.nhom10.coolmate.product.ProductCardService;
+import com.nhom10.coolmate.product.ProductVariant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Duy trì các bảng tổng hợp doanh số theo ngày (daily_sales, daily_variant_sales, daily_category_sales).
+ * OrderService gọi trong cùng transaction đổi trạng thái đơn hàng, nên bảng tổng hợp luôn khớp với bảng orders.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    // Mã danh mục dùng cho sản phẩm không thuộc danh mục nào
+    static final int NO_CATEGORY = 0;
+
+    private final DailySalesRepository dailySalesRepository;
+    private final DailyVariantSalesRepository dailyVariantSalesRepository;
+    private final DailyCategorySalesRepository dailyCategorySalesRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final BestsellerTracker bestsellerTracker;
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final ProductCardService productCardService;
+
+    // Cộng dồn số lượng + doanh thu của một nhóm (biến thể / danh mục)
+    private record Totals(long units, BigDecimal revenue) {
+        Totals plus(long moreUnits, BigDecimal moreRevenue) {
+            return new Totals(units + moreUnits, revenue.add(moreRevenue));
+        }
+    }
+
+    // --- 1. Đơn hàng chuyển sang DELIVERED: cộng vào bảng tổng hợp ---
+    // (OrderService không cho đổi trạng thái của đơn đã DELIVERED, nên không có chiều trừ ngược lại)
+    @Transactional
+    public void recordDelivered(Order order) {
+        apply(order);
+    }
+
+    // --- 2. Dựng lại toàn bộ từ bảng orders (khởi động lần đầu, hoặc Admin yêu cầu) ---
+    @Transactional
+    public int rebuild() {
+        dailySalesRepository.deleteAllInBatch();
+        dailyVariantSalesRepository.deleteAllInBatch();
+        dailyCategorySalesRepository.deleteAllInBatch();
+
+        int days = dailySalesRepository.rebuildFromOrders();
+        dailyVariantSalesRepository.rebuildFromOrders();
+        dailyCategorySalesRepository.rebuildFromOrders();
+        salesAnalyticsService.invalidate();
+        bestsellerTracker.rebuild();
+        coPurchaseIndex.rebuild();
+        productCardService.rebuildAll();
+        return days;
+    }
+
+    // Gọi rebuild() nội bộ không qua proxy, nên transaction phải mở ngay tại đây.
+    // Bảng xếp hạng bán chạy được dựng sau cùng, khi bảng tổng hợp đã đủ dữ liệu.
+    // Bảng tổng hợp trống mà chưa có đơn DELIVERED nào thì không có gì để dựng lại (tránh dựng lại mỗi lần khởi động).
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (dailySalesRepository.count() == 0 && orderRepository.existsByStatus(OrderStatus.DELIVERED)) {
+            rebuild();
+        } else {
+            bestsellerTracker.rebuild();
+            coPurchaseIndex.rebuild();
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    private void apply(Order order) {
+        LocalDate day = order.getCreatedAt().toLocalDateTime().toLocalDate();
+        List<OrderItem> items = orderItemRepository.findAllWithVariantByOrderIdIn(List.of(order.getId()));
+
+        long orderUnits = 0;
+        Map<Integer, Totals> byVariant = new HashMap<>();
+        Map<Integer, ProductVariant> variants = new HashMap<>();
+        Map<Integer, Totals> byCategory = new HashMap<>();
+        Map<Integer, Long> unitsByProduct = new HashMap<>();
+        for (OrderItem item : items) {
+            long units = item.getQuantity();
+            BigDecimal revenue = item.getPrice().multiply(BigDecimal.valueOf(units));
+            orderUnits += units;
+
+            ProductVariant variant = item.getProductVariant();
+            variants.putIfAbsent(variant.getId(), variant);
+            byVariant.merge(variant.getId(), new Totals(units, revenue), (a, b) -> a.plus(b.units(), b.revenue()));
+
+            Product product = variant.getProduct();
+            unitsByProduct.merge(product.getId(), units, Long::sum);
+            int categoryId = product.getCategory() != null ? product.getCategory().getId() : NO_CATEGORY;
+            byCategory.merge(categoryId, new Totals(units, revenue), (a, b) -> a.plus(b.units(), b.revenue()));
+        }
+
+        dailySalesRepository.add(day, 1, orderUnits, order.getTotal());
+        byVariant.forEach((variantId, totals) ->
+                dailyVariantSalesRepository.add(day, variantId, totals.units(), totals.revenue()));
+        byCategory.forEach((categoryId, totals) ->
+                dailyCategorySalesRepository.add(day, categoryId, totals.units(), totals.revenue()));
+
+        // Báo cáo phân tích trong bộ nhớ nhận cùng delta (áp vào sau khi commit)
+        List<SalesCube.VariantSale> variantSales = new ArrayList<>();
+        byVariant.forEach((variantId, totals) -> {
+            ProductVariant variant = variants.get(variantId);
+            Product product = variant.getProduct();
+            variantSales.add(new SalesCube.VariantSale(variantId,
+                    product.getCategory() != null ? product.getCategory().getName() : null,
+                    variant.getSize() != null ? variant.getSize().getSizeName() : null,
+                    variant.getColor(),
+                    totals.units(), totals.revenue()));
+        });
+        salesAnalyticsService.recordDelta(day, 1, orderUnits, order.getTotal(), variantSales);
+
+        List<BestsellerTracker.VariantUnits> variantUnits = new ArrayList<>();
+        byVariant.forEach((variantId, totals) -> {
+            Product product = variants.get(variantId).getProduct();
+            int categoryId = product.getCategory() != null ? product.getCategory().getId() : NO_CATEGORY;
+            variantUnits.add(new BestsellerTracker.VariantUnits(variantId, product.getId(), categoryId, totals.units()));
+        });
+        bestsellerTracker.record(day, variantUnits);
+
+        // Chỉ mục "Thường được mua cùng" của trang chi tiết sản phẩm
+        coPurchaseIndex.record(unitsByProduct.keySet());
+
+        // Số lượng đã bán trên thẻ sản phẩm (cùng transaction)
+        productCardService.addSold(unitsByProduct);
+    }
+}
@@ -8,6 +8,7 @@ import com.nhom10.coolmate.exception.AppException;
 import com.nhom10.coolmate.user.User;
 import com.nhom10.coolmate.user.UserRepository;
 import com.nhom10.coolmate.vouchers.Voucher;
+import com.nhom10.coolmate.vouchers.VoucherOptionDTO;
 import com.nhom10.coolmate.vouchers.VoucherService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -28,6 +29,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CheckoutController {
 
+    // Số voucher gợi ý tối đa hiển thị ở trang Checkout
+    private static final int VOUCHER_OPTION_LIMIT = 10;
+
     private final CartService cartService;
     private final OrderService orderService;
     private final UserRepository userRepository;
@@ -67,9 +71,10 @@ public class CheckoutController {
                 List<Address> savedAddresses = addressRepository.findByUser(user);
                 model.addAttribute("savedAddresses", savedAddresses);
 
-                // Lấy danh sách Voucher khả dụng cho User
-                List<Voucher> myVouchers = voucherService.getAvailableVouchers();
+                // Các voucher áp dụng được cho giỏ hàng, đã xếp hạng theo số tiền giảm (tốt nhất trước)
+                List<VoucherOptionDTO> myVouchers = voucherService.findBestVouchers(total, VOUCHER_OPTION_LIMIT);
                 model.addAttribute("myVouchers", myVouchers);
+                model.addAttribute("bestVoucher", myVouchers.isEmpty() ? null : myVouchers.get(0));
             }
         }
 
@@ -163,6 +168,13 @@ public class CheckoutController {
         }
     }
 
+    // API gợi ý: các voucher tốt nhất cho tổng tiền, trong 1 lần gọi
+    @GetMapping("/api/voucher/best")
+    @ResponseBody
+    public List<VoucherOptionDTO> bestVouchers(@RequestParam BigDecimal total) {
+        return voucherService.findBestVouchers(total, VOUCHER_OPTION_LIMIT);
+    }
+
     // DTO nội bộ dùng để trả về JSON cho API Voucher
     @Data
     @AllArgsConstructor
@@ -14,7 +14,13 @@ import java.sql.Timestamp;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Danh sách đơn hàng Admin: sắp theo ngày đặt, lọc theo trạng thái + khoảng ngày
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at"),
+        // Lịch sử đơn hàng của khách (phân trang keyset)
+        @Index(name = "idx_orders_user_created_at_id", columnList = "user_id, created_at, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
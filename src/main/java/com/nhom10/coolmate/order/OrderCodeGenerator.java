@@ -0,0 +1,109 @@
+package com.nhom10.coolmate.order;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sinh mã đơn hàng dạng "CM" + yyMMdd + 10 ký tự base36 (VD: CM2510180A3F9K2B1C).
+ * Phần base36 ghép từ: mili-giây trong ngày (27 bit) | node id (10 bit) | số thứ tự trong cùng mili-giây (12 bit).
+ * - Duy nhất giữa các node (mỗi node một coolmate.order.node-id khác nhau, 0..1023) và tăng dần trên mỗi node.
+ * - Không khóa, không truy vấn DB: trạng thái chỉ là 1 AtomicLong cập nhật bằng CAS.
+ * - Hơn 4096 mã trong 1 mili-giây hoặc đồng hồ bị lùi: "mượn" mili-giây kế tiếp thay vì chờ, nên mã vẫn tăng dần.
+ */
+@Component
+public class OrderCodeGenerator {
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String PREFIX = "CM";
+    private static final int DATE_LENGTH = 6;   // yyMMdd
+    private static final int SUFFIX_LENGTH = 10; // 36^10 > 86_400_000 << 22
+    private static final char[] BASE36 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private final int nodeId;
+    private final LongSupplier clock;
+    private final ZoneId zone;
+
+    // (epochMillis << SEQUENCE_BITS) | sequence của mã vừa cấp
+    private final AtomicLong lastState = new AtomicLong();
+    // Ngày hiện tại (tính sẵn để không phải dựng LocalDate cho mỗi mã)
+    private volatile Day currentDay;
+
+    private record Day(long startMillis, long endMillis, char[] yyMMdd) {}
+
+    @Autowired
+    public OrderCodeGenerator(@Value("${coolmate.order.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis, ZoneId.systemDefault());
+    }
+
+    OrderCodeGenerator(int nodeId, LongSupplier clock, ZoneId zone) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("coolmate.order.node-id phải nằm trong khoảng 0.." + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.zone = zone;
+        this.currentDay = dayOf(clock.getAsLong());
+    }
+
+    // --- 1. Mã đơn hàng mới ---
+    public String nextCode() {
+        long state = nextState();
+        long millis = state >>> SEQUENCE_BITS;
+        Day day = dayFor(millis);
+
+        long value = (((millis - day.startMillis()) << NODE_BITS | nodeId) << SEQUENCE_BITS) | (state & SEQUENCE_MASK);
+
+        char[] code = new char[PREFIX.length() + DATE_LENGTH + SUFFIX_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), code, 0);
+        System.arraycopy(day.yyMMdd(), 0, code, PREFIX.length(), DATE_LENGTH);
+        for (int i = code.length - 1; i >= PREFIX.length() + DATE_LENGTH; i--) {
+            code[i] = BASE36[(int) (value % 36)];
+            value /= 36;
+        }
+        return new String(code);
+    }
+
+    // --- 2. Cấp (mili-giây, số thứ tự) kế tiếp, luôn lớn hơn lần cấp trước ---
+    long nextState() {
+        while (true) {
+            long previous = lastState.get();
+            long now = clock.getAsLong();
+            long next = (now > previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (lastState.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    private Day dayFor(long millis) {
+        Day day = currentDay;
+        if (millis >= day.startMillis() && millis < day.endMillis()) {
+            return day;
+        }
+        // Chỉ chạy khi sang ngày mới
+        day = dayOf(millis);
+        currentDay = day;
+        return day;
+    }
+
+    private Day dayOf(long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        String yyMMdd = String.format("%02d%02d%02d", date.getYear() % 100, date.getMonthValue(), date.getDayOfMonth());
+        return new Day(start, end, yyMMdd.toCharArray());
+    }
+}
@@ -2,6 +2,8 @@ package com.nhom10.coolmate.order;
 
 import com.nhom10.coolmate.exception.AppException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,8 +12,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDate;
 
 @Controller
 @RequiredArgsConstructor
@@ -20,21 +21,27 @@ public class OrderController {
 
     private final OrderService orderService;
 
-    // --- 1. READ: Hiển thị danh sách Đơn hàng (Đã sửa logic lọc) ---
+    // --- 1. READ: Hiển thị danh sách Đơn hàng (phân trang, lọc theo trạng thái + khoảng ngày) ---
     @GetMapping
     public String listOrders(
             @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "detailId", required = false) Integer detailId,
             Model model) {
 
-        List<OrderDTO> orders = orderService.getAllOrders(status);
-        model.addAttribute("orders", orders);
+        Page<OrderSummaryDTO> orderPage = orderService.getOrderPage(status, fromDate, toDate, page);
+        model.addAttribute("orders", orderPage.getContent());
+        model.addAttribute("orderPage", orderPage);
 
         // Đảm bảo currentStatus là chuỗi (String) để khớp với Thymeleaf
         model.addAttribute("currentStatus", status != null ? status.toUpperCase() : "ALL");
+        model.addAttribute("fromDate", fromDate);
+        model.addAttribute("toDate", toDate);
         model.addAttribute("pageTitle", "Quản lý Đơn hàng");
 
-        // Xử lý hiển thị modal chi tiết (nếu có detailId)
+        // Xử lý hiển thị modal chi tiết (nếu có detailId): chỉ lúc này mới tải sản phẩm của đơn
         if (detailId != null) {
             try {
                 OrderDTO orderDetail = orderService.getOrderDetail(detailId);
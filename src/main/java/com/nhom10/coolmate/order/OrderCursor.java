@@ -0,0 +1,43 @@
+package com.nhom10.coolmate.order;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Con trỏ phân trang (keyset) cho lịch sử đơn hàng, sắp theo (createdAt, id) giảm dần.
+ * Thời điểm được giữ ở dạng Instant (đủ phần micro/nano giây) để không bỏ sót đơn đặt cùng mili giây.
+ * Token trên URL là Base64 (URL-safe) của chuỗi "createdAt|id".
+ */
+public record OrderCursor(Instant createdAt, Integer id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static OrderCursor after(OrderHistoryItemDTO order) {
+        return new OrderCursor(order.getCreatedAt().toInstant(), order.getId());
+    }
+
+    public Timestamp createdAtTimestamp() {
+        return Timestamp.from(createdAt);
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Token rỗng hoặc sai định dạng đều trả về null (tức là quay về trang đầu)
+    public static OrderCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 2) return null;
+            return new OrderCursor(Instant.parse(parts[0]), Integer.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nhom10.coolmate.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Tóm tắt 1 đơn hàng trong trang "Đơn hàng của tôi".
+ * Được lấy bằng constructor expression (OrderRepository.findHistoryPage), thứ tự trường phải khớp câu truy vấn.
+ * Chi tiết đầy đủ chỉ tải khi khách mở đơn (OrderService.getOrderDetail).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryItemDTO {
+    private Integer id;
+    private String orderCode;
+    private Timestamp createdAt;
+    private OrderStatus status;
+    private BigDecimal finalTotal;
+    private Long itemCount;
+
+    // Sản phẩm đầu tiên của đơn (tên + ảnh đại diện), null nếu sản phẩm đã bị xóa
+    private String firstProductName;
+    private String firstThumbnail;
+}
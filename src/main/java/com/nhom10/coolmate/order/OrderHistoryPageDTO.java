@@ -0,0 +1,25 @@
+package com.nhom10.coolmate.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPageDTO {
+    @Builder.Default
+    private List<OrderHistoryItemDTO> orders = new ArrayList<>();
+
+    // Token con trỏ để lấy các đơn cũ hơn (null nếu đã hết)
+    private String nextCursor;
+    private boolean hasNext;
+
+    // Đang xem trang đầu hay trang sau (để hiển thị nút "Về đơn mới nhất")
+    private boolean firstPage;
+}
@@ -2,18 +2,24 @@ package com.nhom10.coolmate.order;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
 
-    // [MỚI] Lấy danh sách Top sản phẩm bán chạy (đã giao)
-    @Query("SELECT oi.productVariant.id, oi.productVariant.product.name, oi.productVariant.size.sizeName, SUM(oi.quantity) " +
-            "FROM OrderItem oi " +
-            "WHERE oi.order.status = com.nhom10.coolmate.order.OrderStatus.DELIVERED " +
-            "GROUP BY oi.productVariant.id, oi.productVariant.product.name, oi.productVariant.size.sizeName " +
-            "ORDER BY SUM(oi.quantity) DESC")
-    List<Object[]> findTopSellingProductVariants();
+    // Sản phẩm của nhiều đơn hàng trong 1 câu: kèm biến thể, sản phẩm và size
+    @Query("SELECT oi FROM OrderItem oi " +
+            "LEFT JOIN FETCH oi.productVariant v LEFT JOIN FETCH v.product LEFT JOIN FETCH v.size " +
+            "WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItem> findAllWithVariantByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
+
+    // Các cặp [đơn hàng, sản phẩm] (không trùng) của mọi đơn ở trạng thái cho trước, gom theo đơn: dựng chỉ mục "thường mua cùng"
+    @Query("SELECT DISTINCT oi.order.id, v.product.id FROM OrderItem oi JOIN oi.productVariant v " +
+            "WHERE oi.order.status = :status ORDER BY oi.order.id")
+    List<Object[]> findOrderProductPairsByStatus(@Param("status") OrderStatus status);
+
 }
\ No newline at end of file
@@ -1,26 +1,73 @@
 package com.nhom10.coolmate.order;
 
 import com.nhom10.coolmate.user.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer> {
 
-    // Tìm kiếm đơn hàng theo trạng thái
-    List<Order> findByStatus(OrderStatus status);
+    // Số liệu tổng quan cho trang chủ Admin trong 1 câu: mỗi dòng là 1 trạng thái
+    // [trạng thái, số đơn, số đơn từ mốc, doanh thu từ mốc, số tài khoản mới từ mốc]
+    @Query("SELECT o.status, COUNT(o), " +
+            "SUM(CASE WHEN o.createdAt >= :since THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN o.createdAt >= :since THEN o.total ELSE 0 END), " +
+            "(SELECT COUNT(u) FROM User u WHERE u.createdAt >= :since) " +
+            "FROM Order o GROUP BY o.status")
+    List<Object[]> summarizeByStatus(@Param("since") Timestamp since);
 
     List<Order> findByUserOrderByCreatedAtDesc(User user);
 
-    // Tính tổng doanh thu từ các đơn hàng đã Hoàn thành
-    @Query("SELECT SUM(o.total) FROM Order o WHERE o.status = com.nhom10.coolmate.order.OrderStatus.DELIVERED")
-    BigDecimal calculateTotalRevenue();
+    boolean existsByStatus(OrderStatus status);
+
+    // Chi tiết đơn hàng: lấy kèm người đặt và voucher trong cùng 1 câu
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.user LEFT JOIN FETCH o.voucher WHERE o.id = :id")
+    Optional<Order> findDetailById(@Param("id") Integer id);
+
+    // Lịch sử mua hàng (phân trang keyset, mới nhất trước): 1 câu duy nhất trả về tóm tắt từng đơn.
+    // Số sản phẩm, tên và ảnh đại diện của sản phẩm đầu tiên (order_item có id nhỏ nhất) lấy bằng subquery.
+    @Query("SELECT new com.nhom10.coolmate.order.OrderHistoryItemDTO(o.id, o.orderCode, o.createdAt, o.status, o.total, " +
+            "(SELECT COUNT(oi) FROM OrderItem oi WHERE oi.order = o), " +
+            "(SELECT fp.name FROM OrderItem fi JOIN fi.productVariant fv JOIN fv.product fp " +
+            "   WHERE fi.id = (SELECT MIN(x.id) FROM OrderItem x WHERE x.order = o)), " +
+            "(SELECT img.imageUrl FROM ProductImage img WHERE img.id = (" +
+            "   SELECT MIN(img2.id) FROM ProductImage img2 WHERE img2.product.id = (" +
+            "       SELECT gv.product.id FROM OrderItem gi JOIN gi.productVariant gv " +
+            "       WHERE gi.id = (SELECT MIN(y.id) FROM OrderItem y WHERE y.order = o))))) " +
+            "FROM Order o WHERE o.user.email = :email " +
+            "AND (:cursorCreatedAt IS NULL OR o.createdAt < :cursorCreatedAt " +
+            "     OR (o.createdAt = :cursorCreatedAt AND o.id < :cursorId)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderHistoryItemDTO> findHistoryPage(@Param("email") String email,
+                                              @Param("cursorCreatedAt") Timestamp cursorCreatedAt,
+                                              @Param("cursorId") Integer cursorId,
+                                              Limit limit);
+
+    // Danh sách đơn hàng Admin (phân trang): chỉ lấy các cột hiển thị, 1 câu truy vấn + 1 câu đếm.
+    // Tham số null = không lọc; "to" là mốc loại trừ (đầu ngày kế tiếp)
+    @Query(value = "SELECT new com.nhom10.coolmate.order.OrderSummaryDTO(" +
+            "o.id, o.orderCode, u.fullName, u.email, o.createdAt, o.total, o.paymentMethod, o.status, o.deliveryAddress) " +
+            "FROM Order o LEFT JOIN o.user u " +
+            "WHERE (:status IS NULL OR o.status = :status) " +
+            "AND (:from IS NULL OR o.createdAt >= :from) " +
+            "AND (:to IS NULL OR o.createdAt < :to) " +
+            "ORDER BY o.createdAt DESC, o.id DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o " +
+                    "WHERE (:status IS NULL OR o.status = :status) " +
+                    "AND (:from IS NULL OR o.createdAt >= :from) " +
+                    "AND (:to IS NULL OR o.createdAt < :to)")
+    Page<OrderSummaryDTO> findSummaries(@Param("status") OrderStatus status,
+                                        @Param("from") Timestamp from,
+                                        @Param("to") Timestamp to,
+                                        Pageable pageable);
 
-    // [MỚI] Tìm đơn hàng đã hoàn thành sau một thời điểm (Dùng cho biểu đồ doanh thu)
-    List<Order> findByStatusAndCreatedAtAfter(OrderStatus status, Timestamp date);
 }
\ No newline at end of file
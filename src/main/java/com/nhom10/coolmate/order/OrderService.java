@@ -3,7 +3,16 @@ package com.nhom10.coolmate.order;
 import com.nhom10.coolmate.cart.Cart;
 import com.nhom10.coolmate.cart.CartItem;
 import com.nhom10.coolmate.cart.CartService;
+import com.nhom10.coolmate.dashboard.BestsellerTracker;
+import com.nhom10.coolmate.dashboard.DailyCategorySalesRepository;
+import com.nhom10.coolmate.dashboard.DashboardEventHub;
+import com.nhom10.coolmate.dashboard.DailySales;
+import com.nhom10.coolmate.dashboard.DailySalesRepository;
+import com.nhom10.coolmate.dashboard.SalesRollupService;
 import com.nhom10.coolmate.exception.AppException;
+import com.nhom10.coolmate.product.ProductCardService;
+import com.nhom10.coolmate.product.ProductImage;
+import com.nhom10.coolmate.product.ProductImageRepository;
 import com.nhom10.coolmate.product.ProductVariant;
 import com.nhom10.coolmate.product.ProductVariantRepository;
 import com.nhom10.coolmate.user.User;
@@ -16,6 +25,9 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,25 +35,39 @@ import java.math.BigDecimal;
 import java.security.Principal;
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    // Số đơn hàng mỗi trang ở trang quản lý Admin
+    private static final int ADMIN_ORDER_PAGE_SIZE = 20;
+    // Số đơn mỗi trang ở "Đơn hàng của tôi"
+    private static final int MY_ORDERS_PAGE_SIZE = 10;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartService cartService;
     private final ProductVariantRepository productVariantRepository;
+    private final ProductImageRepository productImageRepository;
     private final UserRepository userRepository;
     private final VoucherService voucherService;
+    private final OrderCodeGenerator orderCodeGenerator;
+    private final SalesRollupService salesRollupService;
+    private final DashboardEventHub dashboardEventHub;
+    private final DailySalesRepository dailySalesRepository;
+    private final BestsellerTracker bestsellerTracker;
+    private final DailyCategorySalesRepository dailyCategorySalesRepository;
+    private final ProductCardService productCardService;
 
     // --- DTO RECORDS CHO DASHBOARD ---
     public record ProductSaleDTO(String productName, String sizeName, Long quantitySold) {}
     public record RevenueChartDTO(String label, BigDecimal value) {}
+    public record CategorySaleDTO(String categoryName, Long unitsSold, BigDecimal revenue) {}
 
 
     // =========================================================================
@@ -72,19 +98,34 @@ public class OrderService {
             user = userRepository.findByEmail(principal.getName()).orElse(null);
         }
 
-        // 3. Tính tổng tiền tạm tính (Sub Total) và kiểm tra tồn kho
+        // 3. Tính tổng tiền tạm tính (Sub Total)
         BigDecimal subTotal = BigDecimal.ZERO;
         for (CartItem ci : cart.getCartItems()) {
-            ProductVariant variant = ci.getProductVariant();
-            // Kiểm tra tồn kho lần cuối
-            if (variant.getQuantity() < ci.getQuantity()) {
+            BigDecimal itemTotal = ci.getPriceAtTime().multiply(BigDecimal.valueOf(ci.getQuantity()));
+            subTotal = subTotal.add(itemTotal);
+        }
+
+        // 3b. Trừ tồn kho (kiểm tra và trừ trong cùng 1 câu UPDATE có điều kiện -> không bán vượt kho).
+        // Trừ theo thứ tự ID biến thể tăng dần để các đơn đồng thời luôn khóa dòng theo cùng thứ tự (tránh deadlock).
+        // Thiếu hàng ở bất kỳ biến thể nào -> ném AppException -> rollback toàn bộ đơn hàng.
+        Map<Integer, CartItem> itemsByVariant = new TreeMap<>();
+        Map<Integer, Integer> quantityByVariant = new TreeMap<>();
+        for (CartItem ci : cart.getCartItems()) {
+            itemsByVariant.putIfAbsent(ci.getProductVariant().getId(), ci);
+            quantityByVariant.merge(ci.getProductVariant().getId(), ci.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> entry : quantityByVariant.entrySet()) {
+            if (productVariantRepository.decrementStock(entry.getKey(), entry.getValue()) == 0) {
+                ProductVariant variant = itemsByVariant.get(entry.getKey()).getProductVariant();
                 throw new AppException("Sản phẩm '" + variant.getProduct().getName() +
                         "' (Size: " + variant.getSize().getSizeName() +
                         ", Màu: " + variant.getColor() + ") không đủ số lượng.");
             }
-            BigDecimal itemTotal = ci.getPriceAtTime().multiply(BigDecimal.valueOf(ci.getQuantity()));
-            subTotal = subTotal.add(itemTotal);
         }
+        // Tồn kho trên thẻ sản phẩm (trang danh sách): ghi lại sau khi đơn hàng commit
+        productCardService.refreshStock(itemsByVariant.values().stream()
+                .map(ci -> ci.getProductVariant().getProduct().getId())
+                .collect(Collectors.toSet()));
 
         // 4. Xử lý Voucher (Validate lại ở Backend để bảo mật)
         Voucher voucher = null;
@@ -98,8 +139,8 @@ public class OrderService {
             BigDecimal backendCalculatedDiscount = voucherService.calculateDiscount(voucher, subTotal);
             finalDiscountAmount = backendCalculatedDiscount;
 
-            // Tăng số lượt sử dụng voucher
-            voucherService.increaseVoucherUsedCount(voucher);
+            // Lấy 1 lượt sử dụng voucher (hết lượt -> rollback cả đơn)
+            voucherService.claimVoucher(voucher);
         } else {
             finalDiscountAmount = BigDecimal.ZERO;
         }
@@ -111,7 +152,7 @@ public class OrderService {
         }
 
         // 6. Tạo Mã đơn hàng
-        String orderCode = generateOrderCode();
+        String orderCode = orderCodeGenerator.nextCode();
 
         // 7. Lưu Order (Cha)
         Order newOrder = Order.builder()
@@ -131,16 +172,12 @@ public class OrderService {
 
         Order savedOrder = orderRepository.save(newOrder);
 
-        // 8. Xử lý Cart Items -> Order Items và Trừ tồn kho
+        // 8. Xử lý Cart Items -> Order Items (tồn kho đã được trừ ở bước 3b)
         List<OrderItem> orderItems = new ArrayList<>();
 
         for (CartItem ci : cart.getCartItems()) {
             ProductVariant variant = ci.getProductVariant();
 
-            // Trừ tồn kho
-            variant.setQuantity(variant.getQuantity() - ci.getQuantity());
-            productVariantRepository.save(variant);
-
             // Tạo OrderItem
             OrderItem orderItem = OrderItem.builder()
                     .order(savedOrder)
@@ -162,35 +199,47 @@ public class OrderService {
         // 10. Xóa sạch giỏ hàng
         cartService.clearCart(request, response);
 
-        return savedOrder;
-    }
+        // 11. Báo cho trang chủ Admin đang mở (gửi sau khi commit)
+        dashboardEventHub.orderCreated(savedOrder);
 
-    private String generateOrderCode() {
-        String datePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyMMdd"));
-        int randomPart = new Random().nextInt(9000) + 1000;
-        return "CM" + datePart + randomPart;
+        return savedOrder;
     }
 
     // =========================================================================
     // 2. LOGIC THỐNG KÊ DASHBOARD (FULL)
     // =========================================================================
 
+    // Các số liệu dưới đây đọc từ bảng tổng hợp theo ngày (SalesRollupService), không quét bảng orders
+
     // 2.1. Tổng doanh thu (Chỉ tính đơn đã hoàn thành)
     public BigDecimal getTotalRevenue() {
-        BigDecimal revenue = orderRepository.calculateTotalRevenue();
+        BigDecimal revenue = dailySalesRepository.sumRevenue();
         return revenue != null ? revenue : BigDecimal.ZERO;
     }
 
-    // 2.2. Top 10 Sản phẩm bán chạy
+    // 2.2. Top 10 Sản phẩm bán chạy (mọi thời điểm)
     public List<ProductSaleDTO> getTopSellingProducts() {
-        List<Object[]> results = orderItemRepository.findTopSellingProductVariants();
-        return results.stream()
-                .map(result -> new ProductSaleDTO(
-                        (String) result[1], // Tên SP
-                        (String) result[2], // Size
-                        ((Number) result[3]).longValue() // Số lượng bán
-                ))
-                .limit(10)
+        return getBestsellers(BestsellerTracker.Window.ALL_TIME, null, 10);
+    }
+
+    // 2.2b. Bảng xếp hạng bán chạy theo khung thời gian / danh mục (categoryId = null: toàn shop).
+    // Thứ hạng đọc từ BestsellerTracker trong bộ nhớ, chỉ 1 câu lấy tên sản phẩm + size cho các dòng kết quả
+    public List<ProductSaleDTO> getBestsellers(BestsellerTracker.Window window, Integer categoryId, int limit) {
+        List<BestsellerTracker.Ranked> ranked = bestsellerTracker.top(window, categoryId, limit);
+        if (ranked.isEmpty()) return new ArrayList<>();
+
+        Map<Integer, ProductVariant> variants = productVariantRepository.findAllWithProductAndSizeByIdIn(
+                        ranked.stream().map(BestsellerTracker.Ranked::variantId).toList()).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+        return ranked.stream()
+                .filter(r -> variants.containsKey(r.variantId()))
+                .map(r -> {
+                    ProductVariant variant = variants.get(r.variantId());
+                    return new ProductSaleDTO(
+                            variant.getProduct().getName(),
+                            variant.getSize() != null ? variant.getSize().getSizeName() : "-",
+                            r.unitsSold());
+                })
                 .collect(Collectors.toList());
     }
 
@@ -201,10 +250,9 @@ public class OrderService {
         // A. Xác định mốc thời gian (Mùng 1 của 5 tháng trước)
         LocalDate now = LocalDate.now();
         LocalDate sixMonthsAgo = now.minusMonths(5).withDayOfMonth(1);
-        Timestamp startDate = Timestamp.valueOf(sixMonthsAgo.atStartOfDay());
 
-        // B. Lấy danh sách đơn hàng đã Giao thành công từ mốc thời gian đó
-        List<Order> orders = orderRepository.findByStatusAndCreatedAtAfter(OrderStatus.DELIVERED, startDate);
+        // B. Lấy doanh thu từng ngày từ mốc thời gian đó (tối đa ~184 dòng)
+        List<DailySales> days = dailySalesRepository.findBySaleDateGreaterThanEqualOrderBySaleDate(sixMonthsAgo);
 
         // C. Khởi tạo Map chứa sẵn 6 tháng (Key="MM/yyyy", Value=0) để đảm bảo đủ cột
         Map<String, BigDecimal> revenueMap = new LinkedHashMap<>();
@@ -216,13 +264,11 @@ public class OrderService {
         }
 
         // D. Cộng dồn doanh thu vào Map
-        for (Order order : orders) {
-            if (order.getCreatedAt() != null) {
-                String monthKey = order.getCreatedAt().toLocalDateTime().format(formatter);
-                // Chỉ cộng nếu key nằm trong 6 tháng (đề phòng sai lệch nhỏ)
-                if (revenueMap.containsKey(monthKey)) {
-                    revenueMap.put(monthKey, revenueMap.get(monthKey).add(order.getTotal()));
-                }
+        for (DailySales day : days) {
+            String monthKey = day.getSaleDate().format(formatter);
+            // Chỉ cộng nếu key nằm trong 6 tháng (đề phòng sai lệch nhỏ)
+            if (revenueMap.containsKey(monthKey)) {
+                revenueMap.put(monthKey, revenueMap.get(monthKey).add(day.getRevenue()));
             }
         }
 
@@ -234,51 +280,69 @@ public class OrderService {
         return chartData;
     }
 
+    // 2.4. Doanh số theo danh mục trong 30 ngày gần nhất
+    public List<CategorySaleDTO> getCategorySalesLast30Days() {
+        return dailyCategorySalesRepository.sumByCategorySince(LocalDate.now().minusDays(29)).stream()
+                .map(result -> new CategorySaleDTO(
+                        result[0] != null ? (String) result[0] : "Không có danh mục",
+                        ((Number) result[1]).longValue(),
+                        (BigDecimal) result[2]
+                ))
+                .collect(Collectors.toList());
+    }
+
     // =========================================================================
     // 3. CÁC HÀM CRUD & MAPPER
     // =========================================================================
 
+    // Chi tiết đơn hàng (trang đặt hàng thành công / mở từ lịch sử đơn hàng, Admin): số câu truy vấn cố định, không phụ thuộc số sản phẩm
+    @Transactional(readOnly = true)
     public OrderDTO getOrderDetail(Integer id) {
-        Order order = orderRepository.findById(id)
+        Order order = orderRepository.findDetailById(id)
                 .orElseThrow(() -> new AppException("Đơn hàng không tìm thấy với ID: " + id));
 
-        // Load lazy relationship (nếu cần thiết, dù mapper đã xử lý)
-        if(order.getOrderItems() != null) order.getOrderItems().size();
-
-        return mapToDTO(order);
+        return mapToDTOs(List.of(order)).get(0);
     }
 
-    // Lấy danh sách đơn hàng của User (Lịch sử mua hàng)
-    public List<OrderDTO> getMyOrders(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new AppException("Người dùng không tồn tại"));
+    // Lịch sử mua hàng của User: mỗi trang là 1 câu truy vấn tóm tắt, trang sau lấy theo con trỏ
+    public OrderHistoryPageDTO getMyOrderHistory(String email, String cursorToken) {
+        OrderCursor cursor = OrderCursor.decode(cursorToken);
 
-        List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(user);
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        List<OrderHistoryItemDTO> rows = orderRepository.findHistoryPage(email,
+                cursor != null ? cursor.createdAtTimestamp() : null,
+                cursor != null ? cursor.id() : null,
+                Limit.of(MY_ORDERS_PAGE_SIZE + 1));
 
-        return orders.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        OrderCursor nextCursor = null;
+        if (rows.size() > MY_ORDERS_PAGE_SIZE) {
+            rows = rows.subList(0, MY_ORDERS_PAGE_SIZE);
+            nextCursor = OrderCursor.after(rows.get(MY_ORDERS_PAGE_SIZE - 1));
+        }
+
+        return OrderHistoryPageDTO.builder()
+                .orders(rows)
+                .hasNext(nextCursor != null)
+                .nextCursor(nextCursor != null ? nextCursor.encode() : null)
+                .firstPage(cursor == null)
+                .build();
     }
 
-    // Lấy tất cả đơn hàng (Admin quản lý)
-    public List<OrderDTO> getAllOrders(String status) {
-        List<Order> orders;
+    // Danh sách đơn hàng (Admin quản lý): phân trang, lọc theo trạng thái và khoảng ngày đặt (tính cả 2 đầu)
+    public Page<OrderSummaryDTO> getOrderPage(String status, LocalDate fromDate, LocalDate toDate, int page) {
+        OrderStatus os = null;
         if (status != null && !status.trim().isEmpty() && !status.equalsIgnoreCase("ALL")) {
             try {
-                OrderStatus os = OrderStatus.valueOf(status.toUpperCase());
-                orders = orderRepository.findByStatus(os);
+                os = OrderStatus.valueOf(status.toUpperCase());
             } catch (IllegalArgumentException e) {
                 // Nếu status rác -> lấy tất cả
-                orders = orderRepository.findAll();
             }
-        } else {
-            orders = orderRepository.findAll();
         }
 
-        // Sắp xếp đơn mới nhất lên đầu (nếu DB chưa sort)
-        // orders.sort(Comparator.comparing(Order::getCreatedAt).reversed());
+        Timestamp from = fromDate != null ? Timestamp.valueOf(fromDate.atStartOfDay()) : null;
+        Timestamp to = toDate != null ? Timestamp.valueOf(toDate.plusDays(1).atStartOfDay()) : null;
 
-        return orders.stream().map(this::mapToDTO).collect(Collectors.toList());
+        return orderRepository.findSummaries(os, from, to, PageRequest.of(Math.max(page, 0), ADMIN_ORDER_PAGE_SIZE));
     }
 
     @Transactional
@@ -292,12 +356,42 @@ public class OrderService {
             throw new AppException("Không thể thay đổi trạng thái đơn hàng đã hoàn tất hoặc đã hủy.");
         }
 
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(newStatus);
         orderRepository.save(order);
+
+        // Cập nhật bảng tổng hợp doanh số khi đơn vào trạng thái DELIVERED (cùng transaction)
+        if (newStatus == OrderStatus.DELIVERED) {
+            salesRollupService.recordDelivered(order);
+        }
+        dashboardEventHub.orderStatusChanged(order, oldStatus);
     }
 
     // --- MAPPER: Chuyển Entity sang DTO ---
-    private OrderDTO mapToDTO(Order order) {
+    // Sản phẩm của mọi đơn được tải trong 1 câu (kèm biến thể, sản phẩm, size), ảnh đại diện trong 1 câu nữa
+    private List<OrderDTO> mapToDTOs(List<Order> orders) {
+        if (orders.isEmpty()) return new ArrayList<>();
+
+        List<Integer> orderIds = orders.stream().map(Order::getId).toList();
+        Map<Integer, List<OrderItem>> itemsByOrder = orderItemRepository.findAllWithVariantByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getOrder().getId()));
+
+        Set<Integer> productIds = itemsByOrder.values().stream()
+                .flatMap(List::stream)
+                .map(OrderItem::getProductVariant)
+                .filter(variant -> variant != null && variant.getProduct() != null)
+                .map(variant -> variant.getProduct().getId())
+                .collect(Collectors.toSet());
+        Map<Integer, String> primaryImages = productIds.isEmpty() ? Map.of()
+                : productImageRepository.findPrimaryByProductIdIn(productIds).stream()
+                        .collect(Collectors.toMap(img -> img.getProduct().getId(), ProductImage::getImageUrl));
+
+        return orders.stream()
+                .map(order -> mapToDTO(order, itemsByOrder.getOrDefault(order.getId(), List.of()), primaryImages))
+                .collect(Collectors.toList());
+    }
+
+    private OrderDTO mapToDTO(Order order, List<OrderItem> items, Map<Integer, String> primaryImages) {
         BigDecimal subTotal = order.getSubTotal() != null ? order.getSubTotal() : BigDecimal.ZERO;
 
         // Xử lý User an toàn (tránh lỗi Lazy Loading hoặc ID rác)
@@ -335,33 +429,28 @@ public class OrderService {
                 .finalTotal(order.getTotal())
                 .status(order.getStatus())
                 .createdAt(order.getCreatedAt())
-                .orderItems(mapOrderItems(order)) // Gọi hàm map chi tiết
+                .orderItems(mapOrderItems(items, primaryImages)) // Gọi hàm map chi tiết
                 .build();
     }
 
-    private List<OrderDTO.OrderItemDTO> mapOrderItems(Order order) {
-        if (order.getOrderItems() == null) return new ArrayList<>();
-
-        return order.getOrderItems().stream()
+    private List<OrderDTO.OrderItemDTO> mapOrderItems(List<OrderItem> items, Map<Integer, String> primaryImages) {
+        return items.stream()
                 .map(item -> {
                     String productName = "Sản phẩm (Đã ẩn)";
                     String sizeName = "N/A";
                     String color = "N/A";
                     List<OrderDTO.ImageInfoDTO> images = new ArrayList<>();
 
-                    try {
-                        if (item.getProductVariant() != null) {
-                            productName = item.getProductVariant().getProduct().getName();
-                            sizeName = item.getProductVariant().getSize().getSizeName();
-                            color = item.getProductVariant().getColor();
-
-                            // Lấy ảnh sản phẩm
-                            images = item.getProductVariant().getProduct().getImages().stream()
-                                    .map(img -> OrderDTO.ImageInfoDTO.builder().imageUrl(img.getImageUrl()).build())
-                                    .collect(Collectors.toList());
-                        }
-                    } catch (Exception e) {
-                        // Bỏ qua lỗi nếu sản phẩm gốc bị xóa
+                    // Sản phẩm gốc có thể đã bị xóa -> giữ giá trị mặc định
+                    ProductVariant variant = item.getProductVariant();
+                    if (variant != null && variant.getProduct() != null) {
+                        productName = variant.getProduct().getName();
+                        color = variant.getColor();
+                        if (variant.getSize() != null) sizeName = variant.getSize().getSizeName();
+
+                        // Ảnh đại diện của sản phẩm
+                        String imageUrl = primaryImages.get(variant.getProduct().getId());
+                        if (imageUrl != null) images.add(OrderDTO.ImageInfoDTO.builder().imageUrl(imageUrl).build());
                     }
 
                     return OrderDTO.OrderItemDTO.builder()
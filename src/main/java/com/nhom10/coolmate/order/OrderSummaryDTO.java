@@ -0,0 +1,30 @@
+package com.nhom10.coolmate.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Một dòng trong danh sách đơn hàng của Admin.
+ * Được lấy trực tiếp bằng constructor expression (OrderRepository.findSummaries), nên thứ tự
+ * các trường phải khớp với câu truy vấn. Chi tiết sản phẩm chỉ tải khi mở một đơn (getOrderDetail).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDTO {
+    private Integer id;
+    private String orderCode;
+    private String customerName;   // null nếu là khách vãng lai
+    private String customerEmail;
+    private Timestamp createdAt;
+    private BigDecimal finalTotal;
+    private String paymentMethod;
+    private OrderStatus status;
+    private String deliveryAddress;
+}
@@ -0,0 +1,161 @@
+package com.nhom10.coolmate.product;
+
+import com.nhom10.coolmate.order.OrderItemRepository;
+import com.nhom10.coolmate.order.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục "Thường được mua cùng": ma trận thưa đối xứng đếm số đơn DELIVERED chứa đồng thời 2 sản phẩm.
+ * - Mỗi hàng là 2 mảng int song song (id sản phẩm đã sắp xếp + số đơn chung), không boxing từng ô.
+ * - Top-N sản phẩm mua cùng được tính sẵn cho từng sản phẩm mỗi khi hàng thay đổi,
+ *   nên trang chi tiết chỉ cần 1 lần tra cứu trong bộ nhớ.
+ * Dựng từ order_items lúc khởi động / khi dựng lại bảng tổng hợp (SalesRollupService); sau đó nhận delta sau khi commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class CoPurchaseIndex {
+
+    // Số sản phẩm gợi ý giữ sẵn cho mỗi sản phẩm
+    static final int TOP_N = 8;
+
+    private final OrderItemRepository orderItemRepository;
+
+    // Chỉ đọc/ghi khi giữ monitor của this
+    private Map<Integer, Row> rows = new HashMap<>();
+    // Đọc không cần lock: mảng đã dựng sẵn, không bao giờ bị sửa sau khi đưa vào map
+    private final Map<Integer, int[]> topNeighbors = new ConcurrentHashMap<>();
+
+    // --- 1. Dựng lại toàn bộ từ các đơn đã giao ---
+    public void rebuild() {
+        // [đơn hàng, sản phẩm], đã gom theo đơn
+        List<Object[]> pairs = orderItemRepository.findOrderProductPairsByStatus(OrderStatus.DELIVERED);
+
+        Map<Integer, Row> rebuilt = new HashMap<>();
+        int[] basket = new int[16];
+        int basketSize = 0;
+        Integer currentOrder = null;
+        for (Object[] pair : pairs) {
+            Integer orderId = (Integer) pair[0];
+            if (!orderId.equals(currentOrder)) {
+                addBasket(rebuilt, basket, basketSize);
+                currentOrder = orderId;
+                basketSize = 0;
+            }
+            if (basketSize == basket.length) basket = Arrays.copyOf(basket, basketSize * 2);
+            basket[basketSize++] = (Integer) pair[1];
+        }
+        addBasket(rebuilt, basket, basketSize);
+
+        synchronized (this) {
+            rows = rebuilt;
+            topNeighbors.clear();
+            rebuilt.forEach((productId, row) -> refreshTop(productId, row));
+        }
+    }
+
+    // --- 2. Delta của 1 đơn hàng vừa vào DELIVERED, áp vào sau khi commit ---
+    public void record(Collection<Integer> productIds) {
+        int[] basket = productIds.stream().mapToInt(Integer::intValue).distinct().toArray();
+        if (basket.length < 2) return;
+
+        Runnable apply = () -> {
+            synchronized (this) {
+                addBasket(rows, basket, basket.length);
+                for (int productId : basket) {
+                    refreshTop(productId, rows.get(productId));
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // --- 3. Sản phẩm thường được mua cùng (nhiều đơn chung nhất trước), tối đa TOP_N ---
+    public List<Integer> neighbors(Integer productId) {
+        int[] top = topNeighbors.get(productId);
+        return top == null ? List.of() : Arrays.stream(top).boxed().toList();
+    }
+
+    // ================= HELPER METHODS =================
+
+    // Cộng 1 giỏ hàng (các sản phẩm khác nhau của 1 đơn) vào mọi cặp, theo cả 2 chiều
+    private static void addBasket(Map<Integer, Row> target, int[] basket, int size) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i == j) continue;
+                target.computeIfAbsent(basket[i], id -> new Row()).increment(basket[j]);
+            }
+        }
+    }
+
+    private void refreshTop(int productId, Row row) {
+        topNeighbors.put(productId, row.top(TOP_N));
+    }
+
+    // Một hàng của ma trận: id sản phẩm tăng dần + số đơn chung tương ứng
+    static final class Row {
+        private int[] ids = new int[4];
+        private int[] counts = new int[4];
+        private int size;
+
+        void increment(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                counts[index]++;
+                return;
+            }
+
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            System.arraycopy(counts, insertAt, counts, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            counts[insertAt] = 1;
+            size++;
+        }
+
+        // n phần tử có số đơn chung lớn nhất (bằng nhau: id nhỏ trước), chèn trực tiếp vì n rất nhỏ
+        int[] top(int n) {
+            int limit = Math.min(n, size);
+            int[] bestIds = new int[limit];
+            int[] bestCounts = new int[limit];
+            int filled = 0;
+            for (int i = 0; i < size; i++) {
+                int count = counts[i];
+                if (filled == limit && count <= bestCounts[limit - 1]) continue;
+
+                int position = Math.min(filled, limit - 1);
+                while (position > 0 && bestCounts[position - 1] < count) {
+                    bestIds[position] = bestIds[position - 1];
+                    bestCounts[position] = bestCounts[position - 1];
+                    position--;
+                }
+                bestIds[position] = ids[i];
+                bestCounts[position] = count;
+                if (filled < limit) filled++;
+            }
+            return bestIds;
+        }
+    }
+}
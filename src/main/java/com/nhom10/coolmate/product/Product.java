@@ -15,7 +15,11 @@ import java.sql.Timestamp;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Phục vụ phân trang keyset theo (created_at, id) và (price, id)
+        @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_products_price_id", columnList = "price, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,67 @@
+package com.nhom10.coolmate.product;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Bản đọc (read model) phi chuẩn hóa của thẻ sản phẩm: mọi thứ trang danh sách cần hiển thị nằm trong 1 dòng,
+ * nên trang chủ / danh sách / tìm kiếm chỉ đọc 1 bảng hẹp có index thay vì dựng lại từ sản phẩm, biến thể,
+ * ảnh, danh mục và đánh giá. Được ProductCardService cập nhật khi các bảng gốc thay đổi.
+ */
+@Entity
+@Table(name = "product_cards", indexes = {
+        @Index(name = "idx_product_cards_created_at_id", columnList = "created_at, product_id"),
+        @Index(name = "idx_product_cards_price_id", columnList = "price, product_id"),
+        @Index(name = "idx_product_cards_category", columnList = "category_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCard {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "name", nullable = false, length = 150)
+    private String name;
+
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(name = "category_name", length = 100)
+    private String categoryName;
+
+    // Giá bán thực tế (đã trừ khuyến mãi): lọc và sắp xếp theo cột này
+    @Column(name = "price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    // Giá gốc khi đang khuyến mãi (để gạch ngang), null nếu không giảm giá
+    @Column(name = "old_price", precision = 10, scale = 2)
+    private BigDecimal oldPrice;
+
+    @Column(name = "image_url")
+    private String imageUrl;
+
+    @Column(name = "average_rating", nullable = false)
+    private Double averageRating;
+
+    @Column(name = "in_stock", nullable = false)
+    private Boolean inStock;
+
+    @Column(name = "created_at")
+    private Timestamp createdAt;
+
+    @Column(name = "total_sold", nullable = false)
+    private Long totalSold;
+
+    // Biến thể (size, màu, tồn kho) dạng JSON cho hộp "Thêm nhanh vào giỏ" của trang danh sách
+    @Column(name = "variants", columnDefinition = "TEXT")
+    private String variants;
+}
@@ -0,0 +1,90 @@
+package com.nhom10.coolmate.product;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductCardRepository extends JpaRepository<ProductCard, Integer> {
+
+    // 8 sản phẩm còn hàng mới nhất (trang chủ)
+    List<ProductCard> findTop8ByInStockTrueOrderByCreatedAtDesc();
+
+    List<ProductCard> findByCategoryIdOrderByCreatedAtDescProductIdDesc(Integer categoryId);
+
+    // --- PHÂN TRANG KEYSET (CON TRỎ) ---
+    // Trang sau được lấy bằng điều kiện "đứng sau (khóa sắp xếp, id)" của phần tử cuối trang trước,
+    // nên trang sâu tốn chi phí như trang đầu (dùng index (created_at, product_id) / (price, product_id)).
+
+    @Query("SELECT c FROM ProductCard c WHERE " +
+            "(:minPrice IS NULL OR c.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR c.price <= :maxPrice) " +
+            "AND (:cursorCreatedAt IS NULL OR c.createdAt < :cursorCreatedAt " +
+            "     OR (c.createdAt = :cursorCreatedAt AND c.productId < :cursorId)) " +
+            "ORDER BY c.createdAt DESC, c.productId DESC")
+    List<ProductCard> findPageByCreatedAtDesc(
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("cursorCreatedAt") Timestamp cursorCreatedAt,
+            @Param("cursorId") Integer cursorId,
+            Limit limit);
+
+    @Query("SELECT c FROM ProductCard c WHERE " +
+            "(:minPrice IS NULL OR c.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR c.price <= :maxPrice) " +
+            "AND (:cursorPrice IS NULL OR c.price > :cursorPrice " +
+            "     OR (c.price = :cursorPrice AND c.productId > :cursorId)) " +
+            "ORDER BY c.price ASC, c.productId ASC")
+    List<ProductCard> findPageByPriceAsc(
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("cursorPrice") BigDecimal cursorPrice,
+            @Param("cursorId") Integer cursorId,
+            Limit limit);
+
+    @Query("SELECT c FROM ProductCard c WHERE " +
+            "(:minPrice IS NULL OR c.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR c.price <= :maxPrice) " +
+            "AND (:cursorPrice IS NULL OR c.price < :cursorPrice " +
+            "     OR (c.price = :cursorPrice AND c.productId < :cursorId)) " +
+            "ORDER BY c.price DESC, c.productId DESC")
+    List<ProductCard> findPageByPriceDesc(
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("cursorPrice") BigDecimal cursorPrice,
+            @Param("cursorId") Integer cursorId,
+            Limit limit);
+
+    // Khóa các thẻ (theo thứ tự ID để 2 luồng cùng khóa nhiều thẻ không deadlock) trước khi đọc lại tồn kho
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ProductCard c WHERE c.productId IN :productIds ORDER BY c.productId")
+    List<ProductCard> findAllForUpdate(@Param("productIds") Collection<Integer> productIds);
+
+    // --- CẬP NHẬT TỪNG PHẦN (không cần dựng lại cả thẻ) ---
+
+    // Cộng dồn số lượng đã bán
+    @Modifying
+    @Query("UPDATE ProductCard c SET c.totalSold = c.totalSold + :units WHERE c.productId = :productId")
+    int addTotalSold(@Param("productId") Integer productId, @Param("units") long units);
+
+    // Đọc lại điểm trung bình (làm tròn 1 chữ số như ProductRating.getAverage()) từ bảng thống kê đánh giá
+    @Modifying
+    @Query("UPDATE ProductCard c SET c.averageRating = COALESCE((SELECT ROUND(1.0 * r.ratingSum / r.ratingCount, 1) " +
+            "FROM ProductRating r WHERE r.productId = :productId AND r.ratingCount > 0), 0.0) " +
+            "WHERE c.productId = :productId")
+    int refreshRating(@Param("productId") Integer productId);
+
+    @Modifying
+    @Query("UPDATE ProductCard c SET c.categoryName = :name WHERE c.categoryId = :categoryId")
+    int renameCategory(@Param("categoryId") Integer categoryId, @Param("name") String name);
+}
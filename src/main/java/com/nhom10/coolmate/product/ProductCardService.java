@@ -0,0 +1,307 @@
+package com.nhom10.coolmate.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nhom10.coolmate.category.Category;
+import com.nhom10.coolmate.category.CategoryRepository;
+import com.nhom10.coolmate.comment.ProductRating;
+import com.nhom10.coolmate.comment.ProductRatingRepository;
+import com.nhom10.coolmate.dashboard.DailyVariantSalesRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Duy trì bảng product_cards (thẻ sản phẩm đã dựng sẵn cho các trang danh sách) và đọc thẻ ra ProductDTO.
+ * Mỗi thay đổi ở bảng gốc cập nhật phần thẻ tương ứng:
+ * - Lưu sản phẩm (ProductService): dựng lại cả thẻ. Xóa sản phẩm: xóa thẻ.
+ * - Đặt hàng trừ kho (OrderService): tồn kho + cờ còn hàng, ghi bởi 1 luồng nền sau khi đơn hàng commit.
+ *   Luồng nền khóa dòng thẻ rồi mới đọc tồn kho trong transaction của riêng nó, nên luôn thấy mọi đơn đã commit;
+ *   2 đơn đồng thời trên 2 biến thể của cùng sản phẩm không ghi đè tồn kho cũ lên nhau.
+ * - Đánh giá mới (CommentService): điểm trung bình.
+ * - Đơn vào DELIVERED (SalesRollupService): số lượng đã bán. Đổi tên danh mục (CategoryService): tên danh mục.
+ * Khởi động: dựng lại toàn bộ nếu số thẻ không khớp số sản phẩm (lần đầu triển khai / dữ liệu sửa tay).
+ */
+@Service
+public class ProductCardService {
+
+    private static final String PLACEHOLDER_IMAGE = "/images/placeholder_product.jpg";
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<ProductDTO.ProductSizeColorStockDTO>> VARIANT_LIST = new TypeReference<>() {};
+
+    private final ProductCardRepository productCardRepository;
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final ProductImageRepository imageRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductRatingRepository productRatingRepository;
+    private final DailyVariantSalesRepository dailyVariantSalesRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Sản phẩm có tồn kho đã đổi (đã commit) nhưng thẻ chưa được ghi lại
+    private final Set<Integer> pendingStock = ConcurrentHashMap.newKeySet();
+    private ExecutorService stockWriter;
+
+    public ProductCardService(ProductCardRepository productCardRepository,
+                              ProductRepository productRepository,
+                              ProductVariantRepository variantRepository,
+                              ProductImageRepository imageRepository,
+                              CategoryRepository categoryRepository,
+                              ProductRatingRepository productRatingRepository,
+                              DailyVariantSalesRepository dailyVariantSalesRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.productCardRepository = productCardRepository;
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.imageRepository = imageRepository;
+        this.categoryRepository = categoryRepository;
+        this.productRatingRepository = productRatingRepository;
+        this.dailyVariantSalesRepository = dailyVariantSalesRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        stockWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-card-stock");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Ghi nốt các thẻ đang chờ (DataSource vẫn còn sống vì bean này phụ thuộc vào nó)
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stockWriter.shutdown();
+        stockWriter.awaitTermination(5, TimeUnit.SECONDS);
+        writePendingStockSafely();
+    }
+
+    // --- 1. Dựng lại thẻ của các sản phẩm (sau khi lưu sản phẩm) ---
+    @Transactional
+    public void refresh(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) return;
+        productCardRepository.saveAll(buildCards(productRepository.findAllById(productIds)));
+        // Tồn kho đọc trong transaction này có thể đã cũ khi commit: luồng nền đọc lại sau khi commit
+        refreshStock(productIds);
+    }
+
+    // --- 2. Sản phẩm bị xóa ---
+    @Transactional
+    public void remove(Integer productId) {
+        productCardRepository.deleteById(productId);
+    }
+
+    // --- 3. Tồn kho thay đổi (đặt hàng): đánh dấu sau khi commit, luồng nền ghi lại biến thể + cờ còn hàng ---
+    public void refreshStock(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) return;
+        List<Integer> ids = List.copyOf(productIds);
+        Runnable enqueue = () -> {
+            pendingStock.addAll(ids);
+            stockWriter.execute(this::writePendingStockSafely);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue.run();
+                }
+            });
+        } else {
+            enqueue.run();
+        }
+    }
+
+    // Ghi tồn kho của mọi thẻ đang chờ, trả về số thẻ đã ghi
+    synchronized int writePendingStock() {
+        List<Integer> ids = new ArrayList<>(pendingStock);
+        if (ids.isEmpty()) return 0;
+        pendingStock.removeAll(ids);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Khóa thẻ trước, rồi mới đọc tồn kho: lần đọc đầu tiên của transaction nằm sau mọi đơn đã commit
+                List<ProductCard> cards = productCardRepository.findAllForUpdate(ids);
+                Map<Integer, List<ProductDTO.ProductSizeColorStockDTO>> variants = loadVariants(ids);
+                for (ProductCard card : cards) {
+                    List<ProductDTO.ProductSizeColorStockDTO> productVariants = variants.getOrDefault(card.getProductId(), List.of());
+                    card.setVariants(writeVariants(productVariants));
+                    card.setInStock(hasStock(productVariants));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Trả lại để lần sau thử lại
+            pendingStock.addAll(ids);
+            throw e;
+        }
+        return ids.size();
+    }
+
+    // --- 4. Có đánh giá mới: đọc lại điểm trung bình từ bảng thống kê ---
+    @Transactional
+    public void refreshRating(Integer productId) {
+        productCardRepository.refreshRating(productId);
+    }
+
+    // --- 5. Số lượng đã bán thay đổi (đơn vào DELIVERED) ---
+    @Transactional
+    public void addSold(Map<Integer, Long> unitsByProduct) {
+        unitsByProduct.forEach(productCardRepository::addTotalSold);
+    }
+
+    // --- 6. Đổi tên danh mục ---
+    @Transactional
+    public void renameCategory(Integer categoryId, String name) {
+        productCardRepository.renameCategory(categoryId, name);
+    }
+
+    // --- 7. Dựng lại toàn bộ bảng ---
+    @Transactional
+    public int rebuildAll() {
+        List<ProductCard> cards = buildCards(productRepository.findAll());
+        productCardRepository.deleteAllInBatch();
+        productCardRepository.saveAll(cards);
+        return cards.size();
+    }
+
+    // Gọi rebuildAll() nội bộ không qua proxy, nên transaction phải mở ngay tại đây
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfStale() {
+        if (productCardRepository.count() != productRepository.count()) {
+            rebuildAll();
+        }
+    }
+
+    // --- 8. Đọc: thẻ -> ProductDTO cho các trang danh sách (không truy vấn thêm) ---
+    public List<ProductDTO> toDTOs(List<ProductCard> cards) {
+        return cards.stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    // ================= HELPER METHODS =================
+
+    private void writePendingStockSafely() {
+        try {
+            writePendingStock();
+        } catch (Exception e) {
+            System.err.println("Không thể cập nhật tồn kho trên thẻ sản phẩm: " + e.getMessage());
+        }
+    }
+
+    private ProductDTO toDTO(ProductCard card) {
+        return ProductDTO.builder()
+                .id(card.getProductId())
+                .name(card.getName())
+                .price(card.getOldPrice() != null ? card.getOldPrice() : card.getPrice())
+                .categoryId(card.getCategoryId())
+                .categoryName(card.getCategoryName())
+                .discountPrice(card.getPrice())
+                .currentPrice(card.getPrice())
+                .oldPrice(card.getOldPrice())
+                .imageUrl(card.getImageUrl())
+                .averageRating(card.getAverageRating())
+                .productVariants(readVariants(card.getVariants()))
+                .build();
+    }
+
+    // Dựng thẻ cho cả danh sách sản phẩm với số câu truy vấn cố định (danh mục, biến thể, ảnh đại diện, đánh giá, đã bán)
+    private List<ProductCard> buildCards(List<Product> products) {
+        if (products.isEmpty()) return new ArrayList<>();
+        List<Integer> productIds = products.stream().map(Product::getId).toList();
+
+        Set<Integer> categoryIds = products.stream()
+                .map(Product::getCategory)
+                .filter(Objects::nonNull)
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+        Map<Integer, String> categoryNames = categoryRepository.findAllById(categoryIds).stream()
+                .collect(Collectors.toMap(Category::getId, Category::getName));
+
+        Map<Integer, List<ProductDTO.ProductSizeColorStockDTO>> variants = loadVariants(productIds);
+
+        Map<Integer, String> images = imageRepository.findPrimaryByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(image -> image.getProduct().getId(), ProductImage::getImageUrl));
+
+        Map<Integer, Double> ratings = productRatingRepository.findAllByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductRating::getProductId, ProductRating::getAverage));
+
+        // [sản phẩm, tổng số lượng]
+        Map<Integer, Long> sold = new HashMap<>();
+        for (Object[] row : dailyVariantSalesRepository.sumUnitsByProductIdIn(productIds)) {
+            sold.put((Integer) row[0], ((Number) row[1]).longValue());
+        }
+
+        return products.stream()
+                .map(product -> {
+                    boolean discounted = product.getDiscountPercent() != null && product.getDiscountPercent() > 0;
+                    Integer categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+                    List<ProductDTO.ProductSizeColorStockDTO> productVariants = variants.getOrDefault(product.getId(), List.of());
+
+                    return ProductCard.builder()
+                            .productId(product.getId())
+                            .name(product.getName())
+                            .categoryId(categoryId)
+                            .categoryName(categoryId == null ? "-" : categoryNames.getOrDefault(categoryId, "Danh mục bị lỗi"))
+                            .price(ProductService.calculateDiscountPrice(product.getPrice(), product.getDiscountPercent()))
+                            .oldPrice(discounted ? product.getPrice() : null)
+                            .imageUrl(images.getOrDefault(product.getId(), PLACEHOLDER_IMAGE))
+                            .averageRating(ratings.getOrDefault(product.getId(), 0.0))
+                            .inStock(hasStock(productVariants))
+                            .createdAt(product.getCreatedAt())
+                            .totalSold(sold.getOrDefault(product.getId(), 0L))
+                            .variants(writeVariants(productVariants))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    // [sản phẩm, biến thể, size, màu, tồn kho] -> biến thể theo sản phẩm
+    private Map<Integer, List<ProductDTO.ProductSizeColorStockDTO>> loadVariants(Collection<Integer> productIds) {
+        Map<Integer, List<ProductDTO.ProductSizeColorStockDTO>> variants = new HashMap<>();
+        for (Object[] row : variantRepository.findStockByProductIdIn(productIds)) {
+            variants.computeIfAbsent((Integer) row[0], id -> new ArrayList<>())
+                    .add(ProductDTO.ProductSizeColorStockDTO.builder()
+                            .variantId((Integer) row[1])
+                            .sizeName((String) row[2])
+                            .color((String) row[3])
+                            .stock((Integer) row[4])
+                            .build());
+        }
+        return variants;
+    }
+
+    private static boolean hasStock(List<ProductDTO.ProductSizeColorStockDTO> variants) {
+        return variants.stream().anyMatch(v -> v.getStock() != null && v.getStock() > 0);
+    }
+
+    private static String writeVariants(List<ProductDTO.ProductSizeColorStockDTO> variants) {
+        try {
+            return JSON.writeValueAsString(variants);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể ghi biến thể vào thẻ sản phẩm", e);
+        }
+    }
+
+    private static List<ProductDTO.ProductSizeColorStockDTO> readVariants(String json) {
+        if (json == null || json.isEmpty()) return new ArrayList<>();
+        try {
+            return JSON.readValue(json, VARIANT_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể đọc biến thể của thẻ sản phẩm", e);
+        }
+    }
+}
@@ -27,6 +27,7 @@ public class ProductController {
     private final ProductService productService;
     private final CategoryService categoryService;
     private final SizesService sizesService;
+    private final ProductViewCounter productViewCounter;
 
     // Helper: Load dữ liệu cần thiết cho Form (Categories, Sizes)
     private void loadFormData(Model model) {
@@ -49,6 +50,7 @@ public class ProductController {
 
         List<ProductDTO> products = productService.getAllProducts(keyword);
         model.addAttribute("products", products);
+        model.addAttribute("viewCounts", productViewCounter.getViewCounts());
         model.addAttribute("keyword", keyword);
         model.addAttribute("pageTitle", "Quản lý Sản phẩm");
 
@@ -120,6 +122,7 @@ public class ProductController {
             model.addAttribute("productDTO", productDTO);
             model.addAttribute("editMode", true);
             model.addAttribute("products", productService.getAllProducts(null));
+            model.addAttribute("viewCounts", productViewCounter.getViewCounts());
 
             return "admin/products";
 
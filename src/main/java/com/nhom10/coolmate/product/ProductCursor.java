@@ -0,0 +1,49 @@
+package com.nhom10.coolmate.product;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Con trỏ phân trang (keyset) cho danh sách sản phẩm.
+ * Ghi nhớ khóa sắp xếp và ID của sản phẩm cuối cùng ở trang trước, để trang sau
+ * được lấy bằng điều kiện "đứng sau (value, id)" thay vì OFFSET.
+ * Token trên URL là Base64 (URL-safe) của chuỗi "sortOrder|value|id".
+ */
+public record ProductCursor(String sortOrder, String value, Integer id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = sortOrder + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã token từ URL. Token rỗng, sai định dạng, thuộc kiểu sắp xếp khác
+     * hoặc có khóa sắp xếp không đọc được theo kiểu sắp xếp đều trả về null (tức là quay về trang đầu).
+     */
+    public static ProductCursor decode(String token, String expectedSortOrder) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3 || !parts[0].equals(expectedSortOrder) || !isValidValue(parts[0], parts[1])) return null;
+            return new ProductCursor(parts[0], parts[1], Integer.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Khóa sắp xếp phải đọc được đúng kiểu mà ProductService dùng để so sánh (NumberFormatException -> null)
+    private static boolean isValidValue(String sortOrder, String value) {
+        switch (sortOrder) {
+            case "price_asc", "price_desc" -> new BigDecimal(value);
+            case "createdAt_desc", "bestseller" -> Long.parseLong(value);
+            default -> {
+                if (!Double.isFinite(Double.parseDouble(value))) return false;
+            }
+        }
+        return true;
+    }
+}
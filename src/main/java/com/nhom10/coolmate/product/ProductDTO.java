@@ -53,8 +53,8 @@ public class ProductDTO {
     // --- Xử lý File Upload (Admin Form) ---
     private List<MultipartFile> newImages = new ArrayList<>();
 
-    // --- Dữ liệu hiện tại (Admin Modal) ---
-    private List<ProductImage> existingImages = new ArrayList<>();
+    // --- Dữ liệu hiện tại (Admin Modal) --- (giá trị thuần, không giữ entity: DTO có thể nằm trong cache)
+    private List<ProductImageDTO> existingImages = new ArrayList<>();
 
     // --- Dữ liệu tổng hợp (Admin List) ---
     private BigDecimal discountPrice; // Tương đương currentPrice, giữ lại để tương thích code cũ
@@ -88,4 +88,13 @@ public class ProductDTO {
         private String color;
         private Integer stock;
     }
-}
\ No newline at end of file
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductImageDTO {
+        private Integer id;
+        private String imageUrl;
+    }
+}
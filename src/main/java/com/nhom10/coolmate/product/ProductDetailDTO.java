@@ -0,0 +1,40 @@
+package com.nhom10.coolmate.product;
+
+import com.nhom10.coolmate.comment.CommentDTO;
+import com.nhom10.coolmate.comment.RatingSummaryDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Toàn bộ dữ liệu của trang chi tiết sản phẩm, đã dựng sẵn để cache
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDetailDTO {
+    private ProductDTO product;
+    @Builder.Default
+    private List<CommentDTO> comments = new ArrayList<>();
+    private RatingSummaryDTO ratingSummary;
+    // Sản phẩm thường được mua cùng (CoPurchaseIndex), đã dựng sẵn để hiển thị thẻ sản phẩm
+    @Builder.Default
+    private List<ProductDTO> boughtTogether = new ArrayList<>();
+
+    // Ước lượng kích thước trong cache: 1 cho sản phẩm + mỗi biến thể, ảnh, sản phẩm gợi ý, bình luận (kể cả trả lời)
+    public int weight() {
+        int weight = 1;
+        if (product != null) {
+            weight += product.getProductVariants() != null ? product.getProductVariants().size() : 0;
+            weight += product.getExistingImages() != null ? product.getExistingImages().size() : 0;
+        }
+        weight += boughtTogether.size();
+        for (CommentDTO comment : comments) {
+            weight += 1 + comment.getReplies().size();
+        }
+        return weight;
+    }
+}
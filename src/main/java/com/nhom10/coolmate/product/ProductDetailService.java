@@ -0,0 +1,37 @@
+package com.nhom10.coolmate.product;
+
+import com.nhom10.coolmate.comment.CommentService;
+import com.nhom10.coolmate.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Dựng dữ liệu trang chi tiết sản phẩm (sản phẩm + bình luận + thống kê đánh giá) và cache lại.
+ * sync = true: khi key chưa có trong cache, các request đồng thời cho cùng sản phẩm chờ
+ * một lần nạp duy nhất thay vì cùng lúc truy vấn DB.
+ * Cache bị xóa khi lưu/xóa sản phẩm (ProductService) và khi có bình luận mới (CommentService);
+ * gợi ý "Thường được mua cùng" vì vậy trễ tối đa bằng TTL của cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductDetailService {
+
+    private final ProductService productService;
+    private final CommentService commentService;
+    private final CoPurchaseIndex coPurchaseIndex;
+
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_DETAIL, key = "#productId", sync = true)
+    @Transactional(readOnly = true)
+    public ProductDetailDTO getProductDetail(Integer productId) {
+        ProductDTO product = productService.getProductById(productId);
+
+        return ProductDetailDTO.builder()
+                .product(product)
+                .comments(commentService.getCommentsByProductId(productId))
+                .ratingSummary(commentService.getRatingSummary(productId))
+                .boughtTogether(productService.getProductsByIds(coPurchaseIndex.neighbors(productId)))
+                .build();
+    }
+}
@@ -1,9 +1,22 @@
 package com.nhom10.coolmate.product;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, Integer> {
 
+    // Lấy ảnh của nhiều sản phẩm trong 1 câu truy vấn (dùng khi dựng danh sách sản phẩm)
+    @Query("SELECT i FROM ProductImage i WHERE i.product.id IN :productIds ORDER BY i.id")
+    List<ProductImage> findAllByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Chỉ lấy ảnh đầu tiên (ảnh đại diện) của mỗi sản phẩm
+    @Query("SELECT i FROM ProductImage i WHERE i.id IN (" +
+            "SELECT MIN(i2.id) FROM ProductImage i2 WHERE i2.product.id IN :productIds GROUP BY i2.product.id)")
+    List<ProductImage> findPrimaryByProductIdIn(@Param("productIds") Collection<Integer> productIds);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.nhom10.coolmate.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+    @Builder.Default
+    private List<ProductDTO> products = new ArrayList<>();
+
+    // Token con trỏ để lấy trang kế tiếp (null nếu đã hết)
+    private String nextCursor;
+    private boolean hasNext;
+
+    // Đang xem trang đầu hay trang sau (để hiển thị nút "Về trang đầu")
+    private boolean firstPage;
+}
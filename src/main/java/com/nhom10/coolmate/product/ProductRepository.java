@@ -5,39 +5,20 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
 
-    // Tìm kiếm theo tên sản phẩm (không phân biệt hoa thường và tìm kiếm một phần)
-    List<Product> findByNameContainingIgnoreCase(String keyword);
+    // Lấy toàn bộ sản phẩm kèm danh mục (dùng để dựng chỉ mục tìm kiếm)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
 
-    // Phương thức mới: Lấy top 8 sản phẩm mới nhất
-    List<Product> findTop8ByOrderByCreatedAtDesc();
-
-    // Tìm sản phẩm theo Category ID
-    List<Product> findByCategoryId(Integer categoryId);
+    // Sản phẩm của 1 danh mục kèm danh mục (đánh chỉ mục lại khi danh mục đổi tên)
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.category.id = :categoryId")
+    List<Product> findAllWithCategoryByCategoryId(@Param("categoryId") Integer categoryId);
 
     // Nếu bạn cần tìm theo Category Id và còn hàng:
     List<Product> findByCategoryIdAndVariants_QuantityGreaterThan(Integer categoryId, Integer quantity);
 
-
-
-    @Query("SELECT p FROM Product p WHERE " +
-            "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-            "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
-            "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
-            // THÊM: Logic sắp xếp động
-            "ORDER BY " +
-            "CASE WHEN :sortOrder = 'price_asc' THEN p.price END ASC, " +
-            "CASE WHEN :sortOrder = 'price_desc' THEN p.price END DESC, " +
-            "CASE WHEN :sortOrder = 'createdAt_desc' OR :sortOrder IS NULL THEN p.createdAt END DESC")
-    List<Product> findByKeywordAndPriceRange(
-            @Param("keyword") String keyword,
-            @Param("minPrice") BigDecimal minPrice,
-            @Param("maxPrice") BigDecimal maxPrice,
-            @Param("sortOrder") String sortOrder // THÊM THAM SỐ
-    );
-}
\ No newline at end of file
+}
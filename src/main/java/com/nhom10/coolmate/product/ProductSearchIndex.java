@@ -0,0 +1,283 @@
+package com.nhom10.coolmate.product;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục tìm kiếm toàn văn (full-text) đặt trong bộ nhớ cho sản phẩm.
+ * Đánh chỉ mục trên tên, mô tả, chất liệu và danh mục; bỏ dấu tiếng Việt để "ao thun" khớp "Áo thun".
+ * Được ProductService cập nhật mỗi khi lưu/xóa sản phẩm, CategoryService khi đổi tên/xóa danh mục
+ * (áp vào sau khi commit, nên transaction bị rollback không để lại dữ liệu chưa lưu), và dựng lại toàn bộ khi ứng dụng khởi động.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    // Trọng số theo trường: khớp ở tên quan trọng hơn khớp ở mô tả
+    private static final float WEIGHT_NAME = 3.0f;
+    private static final float WEIGHT_CATEGORY = 2.0f;
+    private static final float WEIGHT_MATERIAL = 1.5f;
+    private static final float WEIGHT_DESCRIPTION = 1.0f;
+
+    // Khớp tiền tố (đang gõ dở) được tính điểm thấp hơn khớp nguyên từ
+    private static final float PREFIX_MATCH_FACTOR = 0.6f;
+    // Hằng số bão hòa tần suất (kiểu BM25): từ lặp lại nhiều lần không làm điểm tăng mãi
+    private static final float TF_SATURATION = 1.2f;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private final ProductRepository productRepository;
+
+    // term -> (productId -> trọng số của term trong sản phẩm). TreeMap để tra cứu tiền tố.
+    private final NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    // productId -> thông tin đã đánh chỉ mục (để gỡ bỏ và lọc giá/sắp xếp không cần DB)
+    private final Map<Integer, IndexedProduct> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Thông tin tối thiểu của một sản phẩm trong chỉ mục (price = giá thực bán, giống thẻ sản phẩm)
+    public record IndexedProduct(Integer id, Set<String> terms, BigDecimal price, long createdAt) {}
+
+    // Kết quả tìm kiếm kèm điểm liên quan
+    public record SearchHit(Integer productId, double score, BigDecimal price, long createdAt) {}
+
+    // Tài liệu đã tách từ sẵn (tính trong transaction, khi entity còn đọc được), chờ đưa vào chỉ mục
+    private record Document(IndexedProduct indexed, Map<String, Float> termWeights) {}
+
+    // --- 1. Dựng lại toàn bộ chỉ mục khi ứng dụng khởi động ---
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findAllWithCategory();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (Product product : products) {
+                addDocument(toDocument(product));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- 2. Thêm mới / cập nhật một sản phẩm (áp vào sau khi commit) ---
+    public void index(Product product) {
+        if (product == null || product.getId() == null) return;
+
+        Document document = toDocument(product);
+        afterCommit(() -> replace(List.of(document)));
+    }
+
+    // --- 3. Gỡ sản phẩm khỏi chỉ mục (áp vào sau khi commit) ---
+    public void remove(Integer productId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeDocument(productId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // --- 3b. Danh mục đổi tên / bị xóa: đánh chỉ mục lại các sản phẩm của danh mục (sau khi commit) ---
+    public void reindexCategory(Integer categoryId) {
+        afterCommit(() -> replace(productRepository.findAllWithCategoryByCategoryId(categoryId).stream()
+                .map(ProductSearchIndex::toDocument)
+                .toList()));
+    }
+
+    // --- 4. Tìm kiếm: trả về danh sách ID theo độ liên quan giảm dần ---
+    public List<Integer> search(String query) {
+        return search(query, null, null).stream()
+                .map(SearchHit::productId)
+                .toList();
+    }
+
+    /**
+     * Tìm các sản phẩm khớp TẤT CẢ từ khóa (mỗi từ khớp nguyên từ hoặc tiền tố),
+     * lọc theo khoảng giá (nếu có) và xếp hạng theo điểm liên quan.
+     */
+    public List<SearchHit> search(String query, BigDecimal minPrice, BigDecimal maxPrice) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            int totalDocs = Math.max(documents.size(), 1);
+            Map<Integer, Double> scores = null;
+
+            for (String token : new LinkedHashSet<>(tokens)) {
+                Map<Integer, Double> tokenScores = new HashMap<>();
+
+                for (Map.Entry<String, Map<Integer, Float>> entry : matchingTerms(token).entrySet()) {
+                    Map<Integer, Float> docs = entry.getValue();
+                    double idf = Math.log(1 + (totalDocs - docs.size() + 0.5) / (docs.size() + 0.5));
+                    float factor = entry.getKey().equals(token) ? 1.0f : PREFIX_MATCH_FACTOR;
+
+                    for (Map.Entry<Integer, Float> doc : docs.entrySet()) {
+                        if (scores != null && !scores.containsKey(doc.getKey())) continue;
+                        float tf = doc.getValue();
+                        double score = idf * factor * (tf * (TF_SATURATION + 1)) / (tf + TF_SATURATION);
+                        tokenScores.merge(doc.getKey(), score, Math::max);
+                    }
+                }
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // Giao: sản phẩm phải khớp mọi từ khóa
+                    Map<Integer, Double> merged = new HashMap<>();
+                    for (Map.Entry<Integer, Double> e : tokenScores.entrySet()) {
+                        Double previous = scores.get(e.getKey());
+                        if (previous != null) merged.put(e.getKey(), previous + e.getValue());
+                    }
+                    scores = merged;
+                }
+
+                if (scores.isEmpty()) return new ArrayList<>();
+            }
+
+            List<SearchHit> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                IndexedProduct doc = documents.get(e.getKey());
+                if (doc == null || !inPriceRange(doc.price(), minPrice, maxPrice)) continue;
+                hits.add(new SearchHit(doc.id(), e.getValue(), doc.price(), doc.createdAt()));
+            }
+
+            hits.sort(Comparator.comparingDouble(SearchHit::score).reversed()
+                    .thenComparing(SearchHit::productId, Comparator.reverseOrder()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- 4b. Mọi sản phẩm trong khoảng giá (không từ khóa, điểm = 0) - dùng cho các kiểu sắp xếp tính trong bộ nhớ ---
+    public List<SearchHit> all(BigDecimal minPrice, BigDecimal maxPrice) {
+        lock.readLock().lock();
+        try {
+            List<SearchHit> hits = new ArrayList<>(documents.size());
+            for (IndexedProduct doc : documents.values()) {
+                if (!inPriceRange(doc.price(), minPrice, maxPrice)) continue;
+                hits.add(new SearchHit(doc.id(), 0, doc.price(), doc.createdAt()));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- 5. Chuẩn hóa: bỏ dấu tiếng Việt, chữ thường, tách từ ---
+    public static String fold(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(fold(text))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    // ================= HELPER METHODS =================
+
+    private void afterCommit(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void replace(List<Document> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Document document : batch) {
+                removeDocument(document.indexed().id());
+                addDocument(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Document toDocument(Product product) {
+        Map<String, Float> termWeights = new HashMap<>();
+        addField(termWeights, product.getName(), WEIGHT_NAME);
+        addField(termWeights, product.getDescription(), WEIGHT_DESCRIPTION);
+        addField(termWeights, product.getMaterial(), WEIGHT_MATERIAL);
+        if (product.getCategory() != null) {
+            addField(termWeights, product.getCategory().getName(), WEIGHT_CATEGORY);
+        }
+
+        long createdAt = product.getCreatedAt() != null ? product.getCreatedAt().getTime() : 0L;
+        BigDecimal price = product.getPrice() != null
+                ? ProductService.calculateDiscountPrice(product.getPrice(), product.getDiscountPercent())
+                : null;
+        return new Document(new IndexedProduct(product.getId(), termWeights.keySet(), price, createdAt), termWeights);
+    }
+
+    // ----- Các hàm dưới đây gọi khi đã giữ lock -----
+
+    private void addDocument(Document document) {
+        Integer productId = document.indexed().id();
+        for (Map.Entry<String, Float> e : document.termWeights().entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(productId, e.getValue());
+        }
+        documents.put(productId, document.indexed());
+    }
+
+    private void removeDocument(Integer productId) {
+        IndexedProduct existing = documents.remove(productId);
+        if (existing == null) return;
+
+        for (String term : existing.terms()) {
+            Map<Integer, Float> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(productId);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+
+    private static void addField(Map<String, Float> termWeights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            termWeights.merge(token, weight, Float::sum);
+        }
+    }
+
+    private SortedMap<String, Map<Integer, Float>> matchingTerms(String token) {
+        // Mọi term bắt đầu bằng token (bao gồm chính token)
+        return postings.subMap(token, true, token + Character.MAX_VALUE, false);
+    }
+
+    private boolean inPriceRange(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (price == null) return minPrice == null && maxPrice == null;
+        if (minPrice != null && price.compareTo(minPrice) < 0) return false;
+        if (maxPrice != null && price.compareTo(maxPrice) > 0) return false;
+        return true;
+    }
+}
@@ -3,10 +3,14 @@ package com.nhom10.coolmate.product;
 import com.nhom10.coolmate.category.Category;
 import com.nhom10.coolmate.category.CategoryRepository;
 import com.nhom10.coolmate.comment.CommentService;
+import com.nhom10.coolmate.config.CacheConfig;
+import com.nhom10.coolmate.dashboard.BestsellerTracker;
 import com.nhom10.coolmate.sizes.Sizes;
 import com.nhom10.coolmate.sizes.SizesRepository;
 import com.nhom10.coolmate.util.FileUploadHelper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -17,9 +21,15 @@ import jakarta.validation.Valid;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,10 +42,18 @@ public class ProductService {
     private final CategoryRepository categoryRepository;
     private final SizesRepository sizesRepository;
     private final CommentService commentService;
+    private final ProductSearchIndex searchIndex;
+    private final BestsellerTracker bestsellerTracker;
+    private final ProductCardRepository productCardRepository;
+    private final ProductCardService productCardService;
+
+    // Số sản phẩm mỗi trang ở trang danh sách (storefront)
+    private static final int PAGE_SIZE = 24;
 
     // --- Mapper & Calculation ---
 
-    private BigDecimal calculateDiscountPrice(BigDecimal price, Integer discountPercent) {
+    // Giá thực bán (đã trừ giảm giá); dùng chung với thẻ sản phẩm và chỉ mục tìm kiếm để lọc/sắp xếp theo cùng một giá
+    static BigDecimal calculateDiscountPrice(BigDecimal price, Integer discountPercent) {
         if (discountPercent == null || discountPercent <= 0) {
             return price;
         }
@@ -89,15 +107,93 @@ public class ProductService {
                 .oldPrice(oldPrice)
                 .imageUrl(mainImageUrl)
                 .productVariants(variantsDto)
-                .existingImages(product.getImages())
+                .existingImages(toImageDTOs(product.getImages()))
                 .averageRating(averageRating)
                 .build();
     }
 
+    // Chép ảnh sang giá trị thuần (id, url): DTO chi tiết được cache, không được giữ entity / PersistentBag của Hibernate
+    private List<ProductDTO.ProductImageDTO> toImageDTOs(List<ProductImage> images) {
+        if (images == null) return new ArrayList<>();
+        return images.stream()
+                .map(image -> ProductDTO.ProductImageDTO.builder().id(image.getId()).imageUrl(image.getImageUrl()).build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Dựng DTO cho cả một danh sách sản phẩm với số câu truy vấn cố định
+     * (danh mục, biến thể + size, ảnh, điểm đánh giá: mỗi loại 1 câu IN (...)),
+     * rồi ghép trong bộ nhớ. Tránh N+1 khi gọi mapToDTO() cho từng sản phẩm.
+     */
+    private List<ProductDTO> mapToDTOs(List<Product> products) {
+        if (products.isEmpty()) return new ArrayList<>();
+
+        List<Integer> productIds = products.stream().map(Product::getId).collect(Collectors.toList());
+
+        // 1. Danh mục (đọc ID từ proxy không phát sinh truy vấn)
+        Set<Integer> categoryIds = products.stream()
+                .map(Product::getCategory)
+                .filter(Objects::nonNull)
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+        Map<Integer, String> categoryNames = categoryRepository.findAllById(categoryIds).stream()
+                .collect(Collectors.toMap(Category::getId, Category::getName));
+
+        // 2. Biến thể kèm Size
+        Map<Integer, List<ProductDTO.ProductSizeColorStockDTO>> variantsByProduct = variantRepository
+                .findAllWithSizeByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(v -> v.getProduct().getId(),
+                        Collectors.mapping(v -> ProductDTO.ProductSizeColorStockDTO.builder()
+                                .variantId(v.getId())
+                                .sizeName(v.getSize().getSizeName())
+                                .color(v.getColor())
+                                .stock(v.getQuantity())
+                                .build(), Collectors.toList())));
+
+        // 3. Ảnh
+        Map<Integer, List<ProductImage>> imagesByProduct = imageRepository.findAllByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(i -> i.getProduct().getId()));
+
+        // 4. Điểm đánh giá
+        Map<Integer, Double> ratings = commentService.getAverageRatingsByProductIds(productIds);
+
+        return products.stream()
+                .map(product -> {
+                    BigDecimal discountPrice = calculateDiscountPrice(product.getPrice(), product.getDiscountPercent());
+                    BigDecimal oldPrice = (product.getDiscountPercent() != null && product.getDiscountPercent() > 0) ? product.getPrice() : null;
+
+                    List<ProductImage> images = imagesByProduct.getOrDefault(product.getId(), new ArrayList<>());
+                    String mainImageUrl = !images.isEmpty() ? images.get(0).getImageUrl() : "/images/placeholder_product.jpg";
+
+                    Integer categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+                    String categoryName = categoryId == null ? "-" : categoryNames.getOrDefault(categoryId, "Danh mục bị lỗi");
+
+                    return ProductDTO.builder()
+                            .id(product.getId())
+                            .name(product.getName())
+                            .description(product.getDescription())
+                            .price(product.getPrice())
+                            .discountPercent(product.getDiscountPercent())
+                            .material(product.getMaterial())
+                            .categoryId(categoryId)
+                            .categoryName(categoryName)
+                            .discountPrice(discountPrice)
+                            .currentPrice(discountPrice)
+                            .oldPrice(oldPrice)
+                            .imageUrl(mainImageUrl)
+                            .productVariants(variantsByProduct.getOrDefault(product.getId(), new ArrayList<>()))
+                            .existingImages(toImageDTOs(images))
+                            .averageRating(ratings.getOrDefault(product.getId(), 0.0))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
     // ==========================================================
-    // CLIENT: getFilteredProducts (LỌC VÀ SẮP XẾP)
+    // CLIENT: getFilteredProducts (LỌC, SẮP XẾP VÀ PHÂN TRANG BẰNG CON TRỎ)
     // ==========================================================
-    public List<ProductDTO> getFilteredProducts(String keyword, List<String> priceRanges, String minPriceInput, String maxPriceInput, String sortOrder) {
+    public ProductPageDTO getFilteredProducts(String keyword, List<String> priceRanges, String minPriceInput, String maxPriceInput,
+                                              String sortOrder, String cursorToken) {
         // 1. Phân tích khoảng giá từ Checkbox
         BigDecimal minPriceFromRanges = null;
         BigDecimal maxPriceFromRanges = null;
@@ -141,11 +237,161 @@ public class ProductService {
         BigDecimal finalMinPrice = combineMinPrices(minPriceFromRanges, minPriceFromInput);
         BigDecimal finalMaxPrice = combineMaxPrices(maxPriceFromRanges, maxPriceFromInput);
 
-        // 4. Gọi Repository
-        List<Product> products = productRepository.findByKeywordAndPriceRange(keyword, finalMinPrice, finalMaxPrice, sortOrder);
+        // 4. Chuẩn hóa kiểu sắp xếp và giải mã con trỏ
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        String effectiveSort = normalizeSortOrder(sortOrder, hasKeyword);
+        ProductCursor cursor = ProductCursor.decode(cursorToken, effectiveSort);
+
+        // 5. Có từ khóa hoặc sắp theo bán chạy -> xử lý trên chỉ mục trong bộ nhớ; còn lại -> seek trên bảng product_cards.
+        //    Cả 2 nhánh đọc thẻ sản phẩm dựng sẵn, nên 1 trang không cần truy vấn danh mục/biến thể/ảnh/đánh giá
+        PageSlice slice = hasKeyword || "bestseller".equals(effectiveSort)
+                ? searchPage(keyword, finalMinPrice, finalMaxPrice, effectiveSort, cursor)
+                : databasePage(finalMinPrice, finalMaxPrice, effectiveSort, cursor);
+
+        return ProductPageDTO.builder()
+                .products(productCardService.toDTOs(slice.cards()))
+                .hasNext(slice.nextCursor() != null)
+                .nextCursor(slice.nextCursor() != null ? slice.nextCursor().encode() : null)
+                .firstPage(cursor == null)
+                .build();
+    }
 
-        return products.stream()
-                .map(this::mapToDTO)
+    // Một trang kết quả (thẻ sản phẩm) kèm con trỏ tới trang sau (null nếu hết)
+    private record PageSlice(List<ProductCard> cards, ProductCursor nextCursor) {}
+
+    private String normalizeSortOrder(String sortOrder, boolean hasKeyword) {
+        if (sortOrder == null) return hasKeyword ? "relevance" : "createdAt_desc";
+        return switch (sortOrder) {
+            case "price_asc", "price_desc", "createdAt_desc", "bestseller" -> sortOrder;
+            // "relevance" chỉ có nghĩa khi có từ khóa
+            default -> hasKeyword ? "relevance" : "createdAt_desc";
+        };
+    }
+
+    private PageSlice databasePage(BigDecimal minPrice, BigDecimal maxPrice, String sortOrder, ProductCursor cursor) {
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        Limit limit = Limit.of(PAGE_SIZE + 1);
+        Integer cursorId = cursor != null ? cursor.id() : null;
+
+        List<ProductCard> rows = switch (sortOrder) {
+            case "price_asc" -> productCardRepository.findPageByPriceAsc(minPrice, maxPrice,
+                    cursor != null ? new BigDecimal(cursor.value()) : null, cursorId, limit);
+            case "price_desc" -> productCardRepository.findPageByPriceDesc(minPrice, maxPrice,
+                    cursor != null ? new BigDecimal(cursor.value()) : null, cursorId, limit);
+            default -> productCardRepository.findPageByCreatedAtDesc(minPrice, maxPrice,
+                    cursor != null ? new Timestamp(Long.parseLong(cursor.value())) : null, cursorId, limit);
+        };
+
+        if (rows.size() <= PAGE_SIZE) return new PageSlice(rows, null);
+
+        List<ProductCard> page = rows.subList(0, PAGE_SIZE);
+        ProductCard last = page.get(PAGE_SIZE - 1);
+        String value = sortOrder.startsWith("price")
+                ? last.getPrice().toPlainString()
+                : String.valueOf(last.getCreatedAt().getTime());
+        return new PageSlice(page, new ProductCursor(sortOrder, value, last.getProductId()));
+    }
+
+    private PageSlice searchPage(String keyword, BigDecimal minPrice, BigDecimal maxPrice, String sortOrder, ProductCursor cursor) {
+        List<ProductSearchIndex.SearchHit> found = keyword != null && !keyword.trim().isEmpty()
+                ? searchIndex.search(keyword, minPrice, maxPrice)
+                : searchIndex.all(minPrice, maxPrice);
+        // "Bán chạy nhất": sắp xếp, giá trị con trỏ và seek cùng dùng 1 bản chụp số lượng bán (không đổi giữa chừng)
+        Map<Integer, Long> unitsSold = "bestseller".equals(sortOrder) ? bestsellerTracker.productUnitsSnapshot() : Map.of();
+        List<ProductSearchIndex.SearchHit> hits = sortHits(found, sortOrder, unitsSold);
+
+        // Seek trong danh sách kết quả (đã sắp xếp, nằm trong bộ nhớ): tìm nhị phân vị trí đầu tiên đứng sau con trỏ
+        int start = 0;
+        if (cursor != null) {
+            int high = hits.size();
+            while (start < high) {
+                int mid = (start + high) >>> 1;
+                if (isAfterCursor(hits.get(mid), sortOrder, cursor, unitsSold)) {
+                    high = mid;
+                } else {
+                    start = mid + 1;
+                }
+            }
+        }
+
+        int end = Math.min(start + PAGE_SIZE, hits.size());
+        List<ProductSearchIndex.SearchHit> pageHits = hits.subList(start, end);
+        List<ProductCard> cards = findCardsInOrder(pageHits.stream()
+                .map(ProductSearchIndex.SearchHit::productId)
+                .collect(Collectors.toList()));
+
+        if (end >= hits.size()) return new PageSlice(cards, null);
+
+        ProductSearchIndex.SearchHit last = pageHits.get(pageHits.size() - 1);
+        return new PageSlice(cards, new ProductCursor(sortOrder, sortValue(last, sortOrder, unitsSold), last.productId()));
+    }
+
+    private String sortValue(ProductSearchIndex.SearchHit hit, String sortOrder, Map<Integer, Long> unitsSold) {
+        return switch (sortOrder) {
+            case "price_asc", "price_desc" -> hit.price().toPlainString();
+            case "createdAt_desc" -> String.valueOf(hit.createdAt());
+            case "bestseller" -> String.valueOf(unitsSold.getOrDefault(hit.productId(), 0L));
+            default -> String.valueOf(hit.score());
+        };
+    }
+
+    // Kết quả đã được sắp xếp theo sortHits(); true nếu hit đứng sau vị trí con trỏ
+    private boolean isAfterCursor(ProductSearchIndex.SearchHit hit, String sortOrder, ProductCursor cursor,
+                                  Map<Integer, Long> unitsSold) {
+        int cmp = switch (sortOrder) {
+            case "price_asc" -> hit.price().compareTo(new BigDecimal(cursor.value()));
+            case "price_desc" -> new BigDecimal(cursor.value()).compareTo(hit.price());
+            case "createdAt_desc" -> Long.compare(Long.parseLong(cursor.value()), hit.createdAt());
+            case "bestseller" -> Long.compare(Long.parseLong(cursor.value()), unitsSold.getOrDefault(hit.productId(), 0L));
+            default -> Double.compare(Double.parseDouble(cursor.value()), hit.score());
+        };
+        if (cmp != 0) return cmp > 0;
+        // Cùng khóa sắp xếp: price_asc xếp id tăng dần, các kiểu còn lại id giảm dần
+        return "price_asc".equals(sortOrder)
+                ? hit.productId() > cursor.id()
+                : hit.productId() < cursor.id();
+    }
+
+    // Sắp xếp kết quả tìm kiếm (mặc định giữ thứ tự liên quan của chỉ mục)
+    private List<ProductSearchIndex.SearchHit> sortHits(List<ProductSearchIndex.SearchHit> hits, String sortOrder,
+                                                        Map<Integer, Long> unitsSold) {
+        Comparator<ProductSearchIndex.SearchHit> comparator = switch (sortOrder == null ? "relevance" : sortOrder) {
+            case "price_asc" -> Comparator.comparing(ProductSearchIndex.SearchHit::price)
+                    .thenComparing(ProductSearchIndex.SearchHit::productId);
+            case "price_desc" -> Comparator.comparing(ProductSearchIndex.SearchHit::price).reversed()
+                    .thenComparing(ProductSearchIndex.SearchHit::productId, Comparator.reverseOrder());
+            case "createdAt_desc" -> Comparator.comparingLong(ProductSearchIndex.SearchHit::createdAt).reversed()
+                    .thenComparing(ProductSearchIndex.SearchHit::productId, Comparator.reverseOrder());
+            // Số lượng đã bán (mọi thời điểm) theo bản chụp của BestsellerTracker: khóa sắp xếp không đổi trong lúc sort
+            case "bestseller" -> Comparator.comparingLong((ProductSearchIndex.SearchHit hit) -> unitsSold.getOrDefault(hit.productId(), 0L))
+                    .reversed()
+                    .thenComparing(ProductSearchIndex.SearchHit::productId, Comparator.reverseOrder());
+            default -> null;
+        };
+        if (comparator == null) return hits;
+
+        List<ProductSearchIndex.SearchHit> sorted = new ArrayList<>(hits);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    // Lấy sản phẩm theo danh sách ID và giữ nguyên thứ tự của danh sách
+    private List<Product> findAllInOrder(List<Integer> ids) {
+        Map<Integer, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Như findAllInOrder() nhưng đọc thẻ sản phẩm dựng sẵn
+    private List<ProductCard> findCardsInOrder(List<Integer> ids) {
+        Map<Integer, ProductCard> byId = productCardRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ProductCard::getProductId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
@@ -172,12 +418,8 @@ public class ProductService {
     // CLIENT: getFeaturedProducts
     // ==========================================================
     public List<ProductDTO> getFeaturedProducts() {
-        List<Product> products = productRepository.findTop8ByOrderByCreatedAtDesc();
-
-        return products.stream()
-                .filter(p -> p.getVariants() != null && p.getVariants().stream().anyMatch(v -> v.getQuantity() > 0))
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        // 8 sản phẩm còn hàng (ít nhất 1 biến thể có tồn kho) mới nhất
+        return productCardService.toDTOs(productCardRepository.findTop8ByInStockTrueOrderByCreatedAtDesc());
     }
 
     // ==========================================================
@@ -186,14 +428,23 @@ public class ProductService {
     public List<ProductDTO> getAllProducts(String keyword) {
         List<Product> products;
         if (keyword != null && !keyword.trim().isEmpty()) {
-            products = productRepository.findByNameContainingIgnoreCase(keyword);
+            products = findAllInOrder(searchIndex.search(keyword));
         } else {
             products = productRepository.findAll();
         }
 
-        return products.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return mapToDTOs(products);
+    }
+
+    // ==========================================================
+    // CLIENT: getProductsByIds (giữ thứ tự, bỏ qua sản phẩm đã xóa / hết hàng)
+    // ==========================================================
+    public List<ProductDTO> getProductsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        return productCardService.toDTOs(findCardsInOrder(ids).stream()
+                .filter(card -> Boolean.TRUE.equals(card.getInStock()))
+                .collect(Collectors.toList()));
     }
 
     // ==========================================================
@@ -209,6 +460,7 @@ public class ProductService {
     // --- CRUD Logic (ADMIN) ---
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAIL, key = "#dto.id", condition = "#dto.id != null")
     public void saveProduct(@Valid ProductDTO dto) {
         Category category = categoryRepository.findById(dto.getCategoryId())
                 .orElseThrow(() -> new AppException("Danh mục không tồn tại."));
@@ -278,20 +530,24 @@ public class ProductService {
                 }
             }
         }
+
+        // Cập nhật chỉ mục tìm kiếm và thẻ sản phẩm
+        searchIndex.index(savedProduct);
+        productCardService.refresh(List.of(savedProduct.getId()));
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCT_DETAIL, key = "#id")
     public void deleteProduct(Integer id) {
         if (!productRepository.existsById(id)) {
             throw new AppException("Sản phẩm không tìm thấy để xóa.");
         }
         productRepository.deleteById(id);
+        searchIndex.remove(id);
+        productCardService.remove(id);
     }
 
     public List<ProductDTO> findByCategoryId(Integer categoryId) {
-        List<Product> products = productRepository.findByCategoryId(categoryId);
-        return products.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return productCardService.toDTOs(productCardRepository.findByCategoryIdOrderByCreatedAtDescProductIdDesc(categoryId));
     }
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package com.nhom10.coolmate.product;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -10,4 +15,25 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
 
     // Tìm kiếm biến thể theo Product ID, Size ID và Color
     Optional<ProductVariant> findByProductIdAndSizeIdAndColor(Integer productId, Integer sizeId, String color);
-}
\ No newline at end of file
+
+    // Lấy biến thể (kèm Size) của nhiều sản phẩm trong 1 câu truy vấn (dùng khi dựng danh sách sản phẩm)
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.size WHERE v.product.id IN :productIds ORDER BY v.id")
+    List<ProductVariant> findAllWithSizeByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Tồn kho hiện tại trong DB (cột, không phải entity: không bị entity cũ trong persistence context che mất
+    // sau decrementStock): [sản phẩm, biến thể, size, màu, tồn kho]
+    @Query("SELECT v.product.id, v.id, s.sizeName, v.color, v.quantity FROM ProductVariant v JOIN v.size s " +
+            "WHERE v.product.id IN :productIds ORDER BY v.id")
+    List<Object[]> findStockByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Biến thể theo danh sách ID, kèm sản phẩm và size (hiển thị bảng xếp hạng bán chạy)
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product LEFT JOIN FETCH v.size WHERE v.id IN :ids")
+    List<ProductVariant> findAllWithProductAndSizeByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Trừ tồn kho nguyên tử: chỉ thành công (trả về 1) khi còn đủ hàng, không cần khóa trước khi đọc.
+    // Native query: với JPQL, Hibernate ép kiểu tham số theo columnDefinition "INT DEFAULT 0" -> SQL lỗi
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE product_variants SET quantity = quantity - :quantity " +
+            "WHERE id = :variantId AND quantity >= :quantity", nativeQuery = true)
+    int decrementStock(@Param("variantId") Integer variantId, @Param("quantity") Integer quantity);
+}
@@ -0,0 +1,26 @@
+package com.nhom10.coolmate.product;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tổng lượt xem trang chi tiết của một sản phẩm. Tách khỏi bảng products để việc cộng dồn
+ * (ProductViewCounter, ghi theo lô) không tranh khóa với thao tác sửa sản phẩm.
+ */
+@Entity
+@Table(name = "product_view_counts")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductViewCount {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "view_count", nullable = false)
+    private Long viewCount;
+}
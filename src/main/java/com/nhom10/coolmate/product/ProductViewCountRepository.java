@@ -0,0 +1,8 @@
+package com.nhom10.coolmate.product;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductViewCountRepository extends JpaRepository<ProductViewCount, Integer> {
+}
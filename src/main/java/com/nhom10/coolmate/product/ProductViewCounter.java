@@ -0,0 +1,132 @@
+package com.nhom10.coolmate.product;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm lượt xem trang chi tiết sản phẩm với độ trễ gần như bằng 0 cho request:
+ * - Mỗi lượt xem chỉ cộng vào LongAdder của sản phẩm trong bộ nhớ (phân mảnh, không khóa, không truy vấn DB).
+ * - 1 luồng nền ghi phần chênh lệch tích lũy xuống product_view_counts theo chu kỳ,
+ *   bằng 1 câu INSERT ... ON DUPLICATE KEY UPDATE nhiều dòng, và ghi lần cuối khi ứng dụng tắt.
+ * Khoảng mất dữ liệu tối đa khi ứng dụng sập (không kịp tắt êm) = coolmate.views.flush-interval-seconds.
+ */
+@Component
+public class ProductViewCounter {
+
+    // Số sản phẩm tối đa trong 1 câu INSERT (giới hạn độ dài câu lệnh / số tham số)
+    static final int FLUSH_CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductViewCountRepository productViewCountRepository;
+    private final Duration flushInterval;
+
+    // Lượt xem chưa ghi xuống DB. Phần tử không bị xóa (số sản phẩm có giới hạn), nên không mất lượt khi ghi đè
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public ProductViewCounter(JdbcTemplate jdbcTemplate,
+                              ProductViewCountRepository productViewCountRepository,
+                              @Value("${coolmate.views.flush-interval-seconds:10}") long flushIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productViewCountRepository = productViewCountRepository;
+        this.flushInterval = Duration.ofSeconds(flushIntervalSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-view-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Dừng lịch ghi rồi ghi nốt phần còn lại (DataSource vẫn còn sống vì bean này phụ thuộc vào nó)
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushSafely();
+    }
+
+    // --- 1. Ghi nhận 1 lượt xem (luồng request) ---
+    public void recordView(Integer productId) {
+        if (productId == null) return;
+        pending.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    // --- 2. Tổng lượt xem của mọi sản phẩm (đã ghi DB + đang chờ ghi) ---
+    public Map<Integer, Long> getViewCounts() {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (ProductViewCount row : productViewCountRepository.findAll()) {
+            counts.put(row.getProductId(), row.getViewCount());
+        }
+        pending.forEach((productId, adder) -> {
+            long views = adder.sum();
+            if (views > 0) counts.merge(productId, views, Long::sum);
+        });
+        return counts;
+    }
+
+    // --- 3. Ghi phần chênh lệch xuống DB, trả về số sản phẩm đã ghi ---
+    synchronized int flush() {
+        // Chốt phần chênh lệch: trừ đúng lượng đã đọc, lượt xem đến trong lúc ghi được giữ lại cho lần sau
+        List<Object[]> deltas = new ArrayList<>();
+        pending.forEach((productId, adder) -> {
+            long views = adder.sum();
+            if (views > 0) {
+                adder.add(-views);
+                deltas.add(new Object[]{productId, views});
+            }
+        });
+
+        for (int from = 0; from < deltas.size(); from += FLUSH_CHUNK) {
+            List<Object[]> chunk = deltas.subList(from, Math.min(from + FLUSH_CHUNK, deltas.size()));
+            try {
+                jdbcTemplate.update(upsertSql(chunk.size()), chunk.stream().flatMap(Arrays::stream).toArray());
+            } catch (RuntimeException e) {
+                // Trả lại phần chưa ghi được để lần sau thử lại
+                for (Object[] delta : deltas.subList(from, deltas.size())) {
+                    pending.get((Integer) delta[0]).add((Long) delta[1]);
+                }
+                throw e;
+            }
+        }
+        return deltas.size();
+    }
+
+    // ================= HELPER METHODS =================
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Không thể ghi lượt xem sản phẩm: " + e.getMessage());
+        }
+    }
+
+    private static String upsertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO product_view_counts (product_id, view_count) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        return sql.append(" ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count)").toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.nhom10.coolmate.product;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sản phẩm "Đang thịnh hành" cho trang chủ, tính hoàn toàn trong bộ nhớ.
+ * - Lượt xem trang chi tiết và lượt thêm vào giỏ được đếm vào vòng 24h gồm 1440 ô theo phút;
+ *   ghi không khóa (CAS khi sang phút mới, LongAdder cho từng sản phẩm trong ô).
+ * - Điểm = tổng (xem + CART_WEIGHT * thêm giỏ) của từng phút, giảm một nửa sau mỗi HALF_LIFE.
+ * - 1 luồng nền tính lại điểm mỗi REFRESH_INTERVAL và giữ sẵn danh sách thẻ sản phẩm;
+ *   trang chủ chỉ đọc snapshot, không truy vấn DB.
+ * Dữ liệu chỉ nằm trong bộ nhớ: khởi động lại thì bắt đầu đếm từ đầu.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrendingTracker {
+
+    static final int BUCKETS = 24 * 60;
+    static final int CART_WEIGHT = 5;
+    static final Duration HALF_LIFE = Duration.ofHours(2);
+    static final int RAIL_SIZE = 8;
+    private static final Duration REFRESH_INTERVAL = Duration.ofSeconds(5);
+    // Thẻ sản phẩm (giá, tồn kho, ảnh) được nạp lại khi danh sách đổi hoặc sau chừng này, như cache trang chi tiết
+    private static final Duration CARD_TTL = Duration.ofMinutes(2);
+
+    private final ProductService productService;
+
+    private record Counters(LongAdder views, LongAdder carts) {}
+
+    // Một phút trong vòng: ô bị thay mới (CAS) khi phút hiện tại quay lại đúng vị trí của nó sau 24h
+    private record Bucket(long minute, Map<Integer, Counters> counters) {}
+
+    private record Snapshot(List<Integer> productIds, List<ProductDTO> products, long loadedAt) {}
+
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(BUCKETS);
+    // Hệ số suy giảm theo tuổi (phút) của ô, tính sẵn một lần
+    private static final double[] DECAY = decayTable();
+    private volatile Snapshot snapshot = new Snapshot(List.of(), List.of(), 0);
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshSafely,
+                REFRESH_INTERVAL.toMillis(), REFRESH_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    // --- 1. Ghi nhận sự kiện (gọi trên luồng request, không chặn) ---
+    public void recordView(Integer productId) {
+        record(productId, false, System.currentTimeMillis());
+    }
+
+    public void recordAddToCart(Integer productId) {
+        record(productId, true, System.currentTimeMillis());
+    }
+
+    // --- 2. Sản phẩm đang thịnh hành (snapshot mới nhất, không truy vấn DB) ---
+    public List<ProductDTO> getTrendingProducts() {
+        return snapshot.products();
+    }
+
+    // ================= HELPER METHODS =================
+
+    void record(Integer productId, boolean addToCart, long nowMillis) {
+        if (productId == null) return;
+        Counters counters = bucketFor(nowMillis / 60_000).counters()
+                .computeIfAbsent(productId, id -> new Counters(new LongAdder(), new LongAdder()));
+        (addToCart ? counters.carts() : counters.views()).increment();
+    }
+
+    // Điểm thịnh hành của mọi sản phẩm có sự kiện trong 24h gần nhất
+    Map<Integer, Double> scores(long nowMillis) {
+        long nowMinute = nowMillis / 60_000;
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int slot = 0; slot < BUCKETS; slot++) {
+            Bucket bucket = ring.get(slot);
+            if (bucket == null) continue;
+            long age = nowMinute - bucket.minute();
+            if (age < 0 || age >= BUCKETS) continue;
+
+            double factor = DECAY[(int) age];
+            bucket.counters().forEach((productId, counters) -> {
+                long points = counters.views().sum() + CART_WEIGHT * counters.carts().sum();
+                if (points > 0) scores.merge(productId, points * factor, Double::sum);
+            });
+        }
+        return scores;
+    }
+
+    void refresh(long nowMillis) {
+        List<Integer> productIds = scores(nowMillis).entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(RAIL_SIZE)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        Snapshot current = snapshot;
+        if (productIds.equals(current.productIds()) && nowMillis - current.loadedAt() < CARD_TTL.toMillis()) {
+            return;
+        }
+        List<ProductDTO> products = productIds.isEmpty() ? List.of()
+                : List.copyOf(productService.getProductsByIds(productIds));
+        snapshot = new Snapshot(productIds, products, nowMillis);
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh(System.currentTimeMillis());
+        } catch (Exception e) {
+            // Giữ snapshot cũ, lần sau thử lại; không để lỗi làm dừng luồng nền
+            System.err.println("Không thể làm mới danh sách sản phẩm thịnh hành: " + e.getMessage());
+        }
+    }
+
+    private static double[] decayTable() {
+        double[] table = new double[BUCKETS];
+        double minutesPerHalfLife = HALF_LIFE.toMinutes();
+        for (int age = 0; age < BUCKETS; age++) {
+            table[age] = Math.pow(0.5, age / minutesPerHalfLife);
+        }
+        return table;
+    }
+
+    private Bucket bucketFor(long minute) {
+        int slot = (int) (minute % BUCKETS);
+        while (true) {
+            Bucket current = ring.get(slot);
+            if (current != null && current.minute() >= minute) {
+                return current;
+            }
+            Bucket fresh = new Bucket(minute, new ConcurrentHashMap<>());
+            if (ring.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+}
@@ -1,18 +1,10 @@
 package com.nhom10.coolmate.product;
 
-import com.nhom10.coolmate.cart.CartService;
-import com.nhom10.coolmate.category.CategoryDTO;
-import com.nhom10.coolmate.category.CategoryService;
-import com.nhom10.coolmate.comment.Comment;
-import com.nhom10.coolmate.comment.CommentService;
 import com.nhom10.coolmate.exception.AppException;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
@@ -23,22 +15,11 @@ import java.util.List;
 public class UserProductController {
 
     private final ProductService productService;
-    private final CategoryService categoryService;
-    private final CommentService commentService;
-    private final CartService cartService;
+    private final ProductDetailService productDetailService;
+    private final TrendingTracker trendingTracker;
+    private final ProductViewCounter productViewCounter;
 
-    // --- BỔ SUNG: LOGIC TẢI DỮ LIỆU CHUNG (Navbar/Header) ---
-    // (Phải khai báo lại ở đây vì Controller này tách biệt với HomeController)
-
-    @ModelAttribute("categories")
-    public List<CategoryDTO> getCategories() {
-        return categoryService.getAllCategories();
-    }
-
-    @ModelAttribute("cartItemCount")
-    public int getCartItemCount(HttpServletRequest request, HttpServletResponse response) {
-        return cartService.countItemsInCart(request, response);
-    }
+    // Dữ liệu chung của Navbar (danh mục, số lượng giỏ hàng) do GlobalControllerAdvice cung cấp
 
     // --- 1. Trang chi tiết sản phẩm ---
     // Mapping: /product/{id}
@@ -47,14 +28,15 @@ public class UserProductController {
             @PathVariable Integer id,
             Model model) {
         try {
-            ProductDTO product = productService.getProductById(id);
-            List<Comment> productComments = commentService.getCommentsByProductId(id);
-            Double averageRating = commentService.getAverageRatingByProductId(id);
+            ProductDetailDTO detail = productDetailService.getProductDetail(id);
+            trendingTracker.recordView(id);
+            productViewCounter.recordView(id);
 
-            model.addAttribute("product", product);
-            model.addAttribute("productComments", productComments);
-            model.addAttribute("averageRating", averageRating);
-            model.addAttribute("pageTitle", product.getName());
+            model.addAttribute("product", detail.getProduct());
+            model.addAttribute("productComments", detail.getComments());
+            model.addAttribute("ratingSummary", detail.getRatingSummary());
+            model.addAttribute("boughtTogether", detail.getBoughtTogether());
+            model.addAttribute("pageTitle", detail.getProduct().getName());
 
             // Trả về view trong thư mục templates/user/
             return "user/product_detail";
@@ -73,12 +55,19 @@ public class UserProductController {
             @RequestParam(value = "priceRanges", required = false) List<String> priceRanges,
             @RequestParam(value = "minPriceInput", required = false) String minPriceInput, // <<<< THÊM
             @RequestParam(value = "maxPriceInput", required = false) String maxPriceInput, // <<<< THÊM
-            @RequestParam(value = "sortOrder", required = false, defaultValue = "createdAt_desc") String sortOrder, // <<<< ĐỔI TÊN THAM SỐ
+            @RequestParam(value = "sortOrder", required = false) String sortOrder, // <<<< ĐỔI TÊN THAM SỐ
+            @RequestParam(value = "cursor", required = false) String cursor, // Con trỏ trang kế tiếp
             Model model) {
 
-        List<ProductDTO> products = productService.getFilteredProducts(keyword, priceRanges, minPriceInput, maxPriceInput, sortOrder);
+        // Mặc định: có từ khóa -> xếp theo độ liên quan, không có -> mới nhất
+        if (sortOrder == null || sortOrder.isEmpty()) {
+            sortOrder = (keyword != null && !keyword.trim().isEmpty()) ? "relevance" : "createdAt_desc";
+        }
+
+        ProductPageDTO page = productService.getFilteredProducts(keyword, priceRanges, minPriceInput, maxPriceInput, sortOrder, cursor);
 
-        model.addAttribute("products", products);
+        model.addAttribute("products", page.getProducts());
+        model.addAttribute("page", page);
         model.addAttribute("keyword", keyword);
         model.addAttribute("selectedPriceRanges", priceRanges);
         model.addAttribute("minPriceInput", minPriceInput); // <<<< GÁN VÀO MODEL
@@ -6,7 +6,7 @@ import com.nhom10.coolmate.cart.CartService;
 import com.nhom10.coolmate.category.CategoryRepository;
 import com.nhom10.coolmate.exception.AppException;
 
-import com.nhom10.coolmate.order.OrderDTO;
+import com.nhom10.coolmate.order.OrderHistoryPageDTO;
 import com.nhom10.coolmate.order.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -220,15 +220,17 @@ public class UserController {
 
     // --- THÊM: HIỂN THỊ LỊCH SỬ ĐƠN HÀNG ---
     @GetMapping("/user/my_orders")
-    public String myOrders(Model model, Principal principal ) {
+    public String myOrders(@RequestParam(value = "cursor", required = false) String cursor,
+                           Model model, Principal principal ) {
         if (principal == null) {
             return "redirect:/login";
         }
 
-        // Lấy danh sách đơn hàng của user hiện tại
-        List<OrderDTO> myOrders = orderService.getMyOrders(principal.getName());
+        // Lấy 1 trang đơn hàng (tóm tắt) của user hiện tại, mới nhất trước
+        OrderHistoryPageDTO page = orderService.getMyOrderHistory(principal.getName(), cursor);
 
-        model.addAttribute("orders", myOrders);
+        model.addAttribute("orders", page.getOrders());
+        model.addAttribute("page", page);
         model.addAttribute("activeTab", "order"); // Để highlight sidebar menu
 
 
@@ -3,10 +3,12 @@ package com.nhom10.coolmate.user;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    long countByCreatedAtGreaterThanEqual(Timestamp since);
 }
\ No newline at end of file
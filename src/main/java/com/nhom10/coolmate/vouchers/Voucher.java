@@ -28,7 +28,8 @@ public class Voucher {
     @Column(name = "description", length = 255)
     private String description;
 
-    @Column(name = "quantity", nullable = false)
+    // Số lượt còn lại: chỉ đổi qua claimVoucher/releaseVoucher/syncQuantity (không ghi đè khi Admin sửa voucher)
+    @Column(name = "quantity", nullable = false, updatable = false)
     private Integer quantity;
 
     @Enumerated(EnumType.STRING)
@@ -51,7 +52,8 @@ public class Voucher {
     @Column(name = "usage_limit", columnDefinition = "INT DEFAULT 1")
     private Integer usageLimit;
 
-    @Column(name = "used_count", columnDefinition = "INT DEFAULT 0")
+    // Số lượt đã dùng: chỉ đổi qua claimVoucher/releaseVoucher
+    @Column(name = "used_count", columnDefinition = "INT DEFAULT 0", updatable = false)
     private Integer usedCount;
 
     @Column(name = "status", columnDefinition = "TINYINT DEFAULT 1")
@@ -0,0 +1,193 @@
+package com.nhom10.coolmate.vouchers;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+
+/**
+ * Hạn mức lượt dùng giữ sẵn trong bộ nhớ cho các mã voucher "nóng" (coolmate.voucher.hot-codes).
+ * Thay vì mọi đơn hàng cùng cập nhật 1 dòng trong bảng vouchers, mỗi lần hết hàng giữ sẵn
+ * ta trích trước 1 block lượt dùng từ DB (transaction riêng), rồi chia vào nhiều ngăn (stripe);
+ * mỗi luồng ưu tiên lấy từ ngăn của mình nên không tranh chấp nhau.
+ * Lượt đã trích mà chưa dùng được trả lại DB khi voucher bị sửa/xóa hoặc khi ứng dụng tắt,
+ * vì vậy used_count trong DB có thể cao hơn thực tế tối đa (số ngăn x block) trong lúc đang chạy.
+ * Khi trả về DB, bộ ngăn bị gỡ khỏi map và đánh dấu đóng: luồng nào vừa cất lượt vào bộ ngăn đã đóng
+ * sẽ tự lấy lại phần chưa bị gom và trả thẳng về DB, nên không lượt nào bị mất.
+ */
+@Component
+public class VoucherAllotment {
+
+    // Mỗi ngăn cách nhau 16 int (64 byte) để không chung cache line (tránh false sharing)
+    private static final int PADDING = 16;
+
+    private final VoucherRepository voucherRepository;
+    private final TransactionTemplate newTransaction;
+    private final Set<String> hotCodes;
+    private final int blockSize;
+    private final int stripes;
+
+    // voucherId -> các ngăn lượt dùng còn giữ trong bộ nhớ
+    private final Map<Integer, Slots> allotments = new ConcurrentHashMap<>();
+
+    private static final class Slots {
+        private final AtomicIntegerArray counts;
+        // Đã bị gỡ khỏi map để trả về DB: không được cất thêm lượt vào đây
+        private volatile boolean closed;
+
+        private Slots(int length) {
+            this.counts = new AtomicIntegerArray(length);
+        }
+    }
+
+    public VoucherAllotment(VoucherRepository voucherRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${coolmate.voucher.hot-codes:}") String hotCodes,
+                            @Value("${coolmate.voucher.allotment-block-size:20}") int blockSize) {
+        this.voucherRepository = voucherRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.hotCodes = Arrays.stream(hotCodes.split(","))
+                .map(code -> code.trim().toUpperCase(Locale.ROOT))
+                .filter(code -> !code.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.blockSize = Math.max(blockSize, 1);
+        // Số ngăn = lũy thừa của 2 gần nhất >= số nhân CPU
+        this.stripes = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 2 - 1, 1));
+    }
+
+    public boolean isHot(String code) {
+        return code != null && hotCodes.contains(code.toUpperCase(Locale.ROOT));
+    }
+
+    // --- 1. Lấy 1 lượt dùng: ngăn của luồng hiện tại -> các ngăn khác -> trích block mới từ DB ---
+    public boolean tryClaim(Integer voucherId) {
+        Slots slots = allotments.computeIfAbsent(voucherId, id -> new Slots(stripes * PADDING));
+        int home = homeStripe();
+
+        for (int i = 0; i < stripes; i++) {
+            if (decrementIfPositive(slots.counts, ((home + i) & (stripes - 1)) * PADDING)) {
+                return true;
+            }
+        }
+
+        int reserved = reserve(voucherId);
+        if (reserved == 0) {
+            return false;
+        }
+        // Dùng 1 lượt ngay, phần còn lại cất vào ngăn của luồng này
+        if (reserved > 1) {
+            deposit(voucherId, slots, home, reserved - 1);
+        }
+        return true;
+    }
+
+    // --- 2. Trả lại 1 lượt (đơn hàng rollback sau khi đã lấy lượt) ---
+    public void release(Integer voucherId) {
+        Slots slots = allotments.get(voucherId);
+        if (slots != null) {
+            deposit(voucherId, slots, homeStripe(), 1);
+        } else {
+            releaseToDatabase(voucherId, 1);
+        }
+    }
+
+    // Lượt đang giữ trong bộ nhớ (DB có thể đã về 0 nhưng voucher vẫn còn dùng được)
+    public int available(Integer voucherId) {
+        Slots slots = allotments.get(voucherId);
+        if (slots == null || slots.closed) return 0;
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += slots.counts.get(i * PADDING);
+        }
+        return total;
+    }
+
+    // --- 3. Trả toàn bộ lượt đang giữ về DB (voucher bị sửa/xóa) ---
+    public void drain(Integer voucherId) {
+        Slots slots = allotments.remove(voucherId);
+        if (slots == null) return;
+
+        // Đóng trước khi gom: luồng cất lượt sau thời điểm này sẽ thấy closed và tự trả phần của mình
+        slots.closed = true;
+        int unused = 0;
+        for (int i = 0; i < stripes; i++) {
+            unused += slots.counts.getAndSet(i * PADDING, 0);
+        }
+        if (unused > 0) {
+            releaseToDatabase(voucherId, unused);
+        }
+    }
+
+    @PreDestroy
+    public void drainAll() {
+        for (Integer voucherId : allotments.keySet()) {
+            drain(voucherId);
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    // Trích trước 1 block trong transaction riêng (không bị rollback theo đơn hàng đang xử lý).
+    // Không đủ cả block thì thử lấy lẻ 1 lượt.
+    private int reserve(Integer voucherId) {
+        Integer reserved = newTransaction.execute(status -> {
+            if (blockSize > 1 && voucherRepository.claimVoucher(voucherId, blockSize) == 1) {
+                return blockSize;
+            }
+            return voucherRepository.claimVoucher(voucherId, 1) == 1 ? 1 : 0;
+        });
+        return reserved != null ? reserved : 0;
+    }
+
+    // Cất lượt vào ngăn của luồng hiện tại. Nếu bộ ngăn vừa bị đóng (drain), phần drain chưa gom được
+    // lấy lại và trả thẳng về DB; phần drain đã gom thì drain đã trả rồi.
+    private void deposit(Integer voucherId, Slots slots, int stripe, int count) {
+        int index = stripe * PADDING;
+        slots.counts.addAndGet(index, count);
+        if (!slots.closed) return;
+
+        int taken = takeUpTo(slots.counts, index, count);
+        if (taken > 0) {
+            releaseToDatabase(voucherId, taken);
+        }
+    }
+
+    private void releaseToDatabase(Integer voucherId, int count) {
+        newTransaction.executeWithoutResult(status -> voucherRepository.releaseVoucher(voucherId, count));
+    }
+
+    private int homeStripe() {
+        return (int) Thread.currentThread().threadId() & (stripes - 1);
+    }
+
+    private static int takeUpTo(AtomicIntegerArray slots, int index, int max) {
+        int current;
+        int taken;
+        do {
+            current = slots.get(index);
+            taken = Math.min(current, max);
+            if (taken <= 0) return 0;
+        } while (!slots.compareAndSet(index, current, current - taken));
+        return taken;
+    }
+
+    private static boolean decrementIfPositive(AtomicIntegerArray slots, int index) {
+        int current;
+        do {
+            current = slots.get(index);
+            if (current <= 0) return false;
+        } while (!slots.compareAndSet(index, current, current - 1));
+        return true;
+    }
+}
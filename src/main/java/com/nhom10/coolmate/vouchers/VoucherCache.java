@@ -0,0 +1,153 @@
+package com.nhom10.coolmate.vouchers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chỉ mục trong bộ nhớ của các voucher đang hoạt động (key: mã viết hoa), dùng cho API kiểm tra mã
+ * và lúc đặt hàng. Kèm Bloom filter của TẤT CẢ mã đã biết: mã chắc chắn không tồn tại bị từ chối
+ * ngay, không truy vấn DB. Chỉ những mã "có thể tồn tại" nhưng không còn hoạt động mới xuống DB.
+ * Tự nạp lại sau TTL và sau khi VoucherService thêm/sửa/xóa voucher.
+ */
+@Component
+@RequiredArgsConstructor
+public class VoucherCache {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final VoucherRepository voucherRepository;
+    private final VoucherAllotment voucherAllotment;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    // Thống kê: tìm thấy trong chỉ mục / bị Bloom filter loại / phải xuống DB
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Snapshot(Map<String, Voucher> active, VoucherCodeFilter knownCodes, VoucherRanking ranking,
+                            int knownCount, LocalDateTime loadedAt, long expiresAtNanos) {}
+
+    public record Stats(long hits, long negativeHits, long misses, int activeVouchers, int knownCodes,
+                        LocalDateTime loadedAt) {}
+
+    // --- 1. Tra cứu voucher theo mã (không phân biệt hoa thường) ---
+    public Optional<Voucher> findByCode(String code) {
+        if (code == null) return Optional.empty();
+        String key = normalize(code);
+        Snapshot current = currentSnapshot();
+
+        Voucher voucher = current.active().get(key);
+        if (voucher != null) {
+            hits.increment();
+            return Optional.of(voucher);
+        }
+        if (!current.knownCodes().mightContain(key)) {
+            negativeHits.increment();
+            return Optional.empty();
+        }
+        // Có thể tồn tại nhưng không còn hoạt động (hoặc dương tính giả) -> hỏi DB
+        misses.increment();
+        return voucherRepository.findByCodeIgnoreCase(key);
+    }
+
+    // --- 2. Ứng viên tốt nhất cho một tổng đơn (xem VoucherRanking) ---
+    public List<Voucher> findBestCandidates(BigDecimal orderTotal, int limit) {
+        return currentSnapshot().ranking().candidates(orderTotal, LocalDate.now(), limit);
+    }
+
+    // --- 3. Đánh dấu cần nạp lại (sau khi transaction hiện tại commit, nếu có) ---
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshot = null;
+                }
+            });
+        } else {
+            snapshot = null;
+        }
+    }
+
+    public Stats getStats() {
+        Snapshot current = currentSnapshot();
+        return new Stats(hits.sum(), negativeHits.sum(), misses.sum(),
+                current.active().size(), current.knownCount(), current.loadedAt());
+    }
+
+    // ================= HELPER METHODS =================
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.expiresAtNanos() < 0) {
+            return current;
+        }
+        // Hết hạn: chỉ 1 luồng nạp lại, các luồng khác tiếp tục dùng bản cũ (nếu có)
+        if (current != null && !refreshLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            refreshLock.lock();
+        }
+        try {
+            Snapshot latest = snapshot;
+            if (latest != null && latest != current && System.nanoTime() - latest.expiresAtNanos() < 0) {
+                return latest;
+            }
+            Snapshot loaded = load();
+            snapshot = loaded;
+            return loaded;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Snapshot load() {
+        List<Voucher> vouchers = voucherRepository.findAll();
+        LocalDate today = LocalDate.now();
+
+        Map<String, Voucher> active = new HashMap<>();
+        List<Voucher> ranked = new ArrayList<>();
+        List<String> knownCodes = vouchers.stream().map(v -> normalize(v.getCode())).toList();
+        for (Voucher voucher : vouchers) {
+            boolean enabled = voucher.getStatus() != null && voucher.getStatus() == 1;
+            boolean expired = voucher.getEndDate() != null && voucher.getEndDate().isBefore(today);
+            if (enabled && !expired) {
+                active.put(normalize(voucher.getCode()), voucher);
+                // Mã đã hết lượt vẫn tra được theo mã (để báo lỗi đúng) nhưng không vào bảng xếp hạng
+                if (hasRemainingUses(voucher)) ranked.add(voucher);
+            }
+        }
+
+        return new Snapshot(Map.copyOf(active), new VoucherCodeFilter(knownCodes), new VoucherRanking(ranked),
+                knownCodes.size(),
+                LocalDateTime.now(), System.nanoTime() + TTL.toNanos());
+    }
+
+    // Còn lượt trong DB, hoặc còn lượt đang giữ trong bộ nhớ với mã "nóng"
+    private boolean hasRemainingUses(Voucher voucher) {
+        return (voucher.getQuantity() != null && voucher.getQuantity() > 0)
+                || voucherAllotment.available(voucher.getId()) > 0;
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,63 @@
+package com.nhom10.coolmate.vouchers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Bloom filter cho tập mã voucher: trả lời "chắc chắn không có" hoặc "có thể có".
+ * Dùng để từ chối ngay các mã gõ bừa / dò mã mà không cần truy vấn DB.
+ * Bất biến sau khi dựng (được dựng lại cùng VoucherCache), nên đọc đồng thời không cần khóa.
+ */
+class VoucherCodeFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_BITS = 1024;
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    VoucherCodeFilter(Collection<String> codes) {
+        int n = Math.max(codes.size(), 1);
+        // m = -n.ln(p) / (ln2)^2, k = m/n.ln2
+        int m = (int) Math.max(MIN_BITS, Math.ceil(-n * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2))));
+        this.bits = new long[(m + 63) >>> 6];
+        this.bitCount = bits.length << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+
+        for (String code : codes) {
+            long hash = hash(code);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bitCount);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    boolean mightContain(String code) {
+        long hash = hash(code);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a 64 bit trên UTF-8, trộn thêm bước cuối của SplitMix64 để phân tán đều 2 nửa 32 bit
+    private static long hash(String code) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : code.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
@@ -22,6 +23,14 @@ import java.util.Optional;
 public class VoucherController {
 
     private final VoucherService voucherService;
+    private final VoucherCache voucherCache;
+
+    // --- Thống kê cache tra cứu mã (hit / bị Bloom filter loại / xuống DB) ---
+    @GetMapping("/cache-stats")
+    @ResponseBody
+    public VoucherCache.Stats cacheStats() {
+        return voucherCache.getStats();
+    }
 
     // --- 1. READ: Hiển thị trang quản lý (Form Thêm mới/List) ---
     @GetMapping
@@ -0,0 +1,26 @@
+package com.nhom10.coolmate.vouchers;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Một voucher áp dụng được cho giỏ hàng hiện tại, kèm số tiền giảm đã tính sẵn (dùng ở trang Checkout)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoucherOptionDTO {
+    private String code;
+    private String description;
+    private DiscountType discountType;
+    private BigDecimal discountValue;
+    private BigDecimal minOrderAmount;
+    private LocalDate endDate;
+
+    // Số tiền giảm thực tế với tổng đơn hiện tại
+    private BigDecimal discountAmount;
+}
@@ -0,0 +1,62 @@
+package com.nhom10.coolmate.vouchers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chỉ mục xếp hạng voucher, dựng sẵn cùng VoucherCache.
+ * Mỗi loại giảm giá (AMOUNT / PERCENT) là một mảng sắp theo giá trị giảm giảm dần: với cùng một
+ * tổng đơn, số tiền giảm (theo calculateDiscount) không tăng khi đi dọc mảng. Vì vậy chỉ cần đi từ
+ * đầu mảng và dừng khi đã đủ "limit" voucher áp dụng được, không phải tính cho toàn bộ tập voucher.
+ */
+class VoucherRanking {
+
+    private static final Comparator<Voucher> BY_VALUE_DESC = Comparator
+            .comparing(Voucher::getDiscountAmount, Comparator.reverseOrder())
+            .thenComparing(v -> v.getMinOrder() != null ? v.getMinOrder() : BigDecimal.ZERO)
+            .thenComparing(Voucher::getId);
+
+    private final Voucher[] amountVouchers;
+    private final Voucher[] percentVouchers;
+
+    VoucherRanking(Collection<Voucher> activeVouchers) {
+        this.amountVouchers = sorted(activeVouchers, DiscountType.AMOUNT);
+        this.percentVouchers = sorted(activeVouchers, DiscountType.PERCENT);
+    }
+
+    /**
+     * Trả về tối đa "limit" voucher tốt nhất của MỖI loại giảm giá áp dụng được cho tổng đơn
+     * (đạt đơn tối thiểu, trong thời hạn).
+     * Người gọi tính số tiền giảm thực tế và trộn hai danh sách.
+     */
+    List<Voucher> candidates(BigDecimal orderTotal, LocalDate today, int limit) {
+        List<Voucher> result = new ArrayList<>(limit * 2);
+        collect(amountVouchers, orderTotal, today, limit, result);
+        collect(percentVouchers, orderTotal, today, limit, result);
+        return result;
+    }
+
+    private static void collect(Voucher[] vouchers, BigDecimal orderTotal, LocalDate today, int limit,
+                                List<Voucher> result) {
+        int found = 0;
+        for (int i = 0; i < vouchers.length && found < limit; i++) {
+            Voucher voucher = vouchers[i];
+            if (voucher.getMinOrder() != null && orderTotal.compareTo(voucher.getMinOrder()) < 0) continue;
+            if (voucher.getStartDate() != null && voucher.getStartDate().isAfter(today)) continue;
+            if (voucher.getEndDate() != null && voucher.getEndDate().isBefore(today)) continue;
+            result.add(voucher);
+            found++;
+        }
+    }
+
+    private static Voucher[] sorted(Collection<Voucher> vouchers, DiscountType type) {
+        return vouchers.stream()
+                .filter(v -> v.getDiscountType() == type && v.getDiscountAmount() != null)
+                .sorted(BY_VALUE_DESC)
+                .toArray(Voucher[]::new);
+    }
+}
@@ -1,8 +1,11 @@
 package com.nhom10.coolmate.vouchers;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 import java.util.Optional;
@@ -19,4 +22,32 @@ public interface  VoucherRepository extends JpaRepository<Voucher, Integer> {
 
     @Query("SELECT v FROM Voucher v WHERE v.status = 1 AND v.quantity > 0 AND (v.endDate >= CURRENT_DATE) ORDER BY v.discountAmount DESC")
     List<Voucher> findAllActiveVouchers();
+
+    // Số lượt còn lại hiện tại trong DB (VoucherCache có thể cũ tới vài phút)
+    @Query("SELECT v.quantity FROM Voucher v WHERE v.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Integer id);
+
+    // [voucher, số lượt còn lại] của nhiều voucher trong 1 câu
+    @Query("SELECT v.id, v.quantity FROM Voucher v WHERE v.id IN :ids")
+    List<Object[]> findQuantitiesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Lấy nguyên tử "count" lượt dùng: chỉ thành công (trả về 1) khi voucher còn hoạt động và còn đủ lượt.
+    // Native query vì used_count có columnDefinition "INT DEFAULT 0" (Hibernate ép kiểu tham số sai với JPQL)
+    @Modifying
+    @Query(value = "UPDATE vouchers SET quantity = quantity - :count, used_count = COALESCE(used_count, 0) + :count " +
+            "WHERE id = :id AND status = 1 AND quantity >= :count", nativeQuery = true)
+    int claimVoucher(@Param("id") Integer id, @Param("count") int count);
+
+    // Trả lại lượt dùng đã lấy nhưng không dùng tới
+    @Modifying
+    @Query(value = "UPDATE vouchers SET quantity = quantity + :count, used_count = GREATEST(COALESCE(used_count, 0) - :count, 0) " +
+            "WHERE id = :id", nativeQuery = true)
+    int releaseVoucher(@Param("id") Integer id, @Param("count") int count);
+
+    // Tính lại số lượt còn lại theo giới hạn mới (Admin sửa voucher), dựa trên used_count hiện tại trong DB.
+    // Voucher không đặt giới hạn dùng cùng mức mặc định như lúc tạo (defaultLimit)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE vouchers SET quantity = GREATEST(COALESCE(usage_limit, :defaultLimit) - COALESCE(used_count, 0), 0) " +
+            "WHERE id = :id", nativeQuery = true)
+    int syncQuantity(@Param("id") Integer id, @Param("defaultLimit") int defaultLimit);
 }
\ No newline at end of file
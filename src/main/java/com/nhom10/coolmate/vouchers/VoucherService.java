@@ -4,18 +4,28 @@ import com.nhom10.coolmate.exception.AppException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class VoucherService {
 
+    // Số lượt dùng của voucher không đặt giới hạn (usage_limit trống)
+    static final int DEFAULT_QUANTITY = 100;
+
     private final VoucherRepository voucherRepository;
+    private final VoucherAllotment voucherAllotment;
+    private final VoucherCache voucherCache;
 
     // --- Mapper ---
     private VoucherDTO mapToDTO(Voucher voucher) {
@@ -48,7 +58,7 @@ public class VoucherService {
                 .discountAmount(dto.getDiscountValue())
 
                 .minOrder(dto.getMinOrderAmount())
-                .quantity(dto.getUsageLimit() != null ? dto.getUsageLimit() : 100) // Mặc định quantity
+                .quantity(dto.getUsageLimit() != null ? dto.getUsageLimit() : DEFAULT_QUANTITY) // Mặc định quantity
                 .startDate(dto.getStartDate())
                 .endDate(dto.getEndDate())
                 .usageLimit(dto.getUsageLimit())
@@ -58,7 +68,7 @@ public class VoucherService {
 
         if (voucher.getId() == null) {
             voucher.setUsedCount(0);
-            if (voucher.getQuantity() == null) voucher.setQuantity(100);
+            if (voucher.getQuantity() == null) voucher.setQuantity(DEFAULT_QUANTITY);
             if (voucher.getStatus() == null) voucher.setStatus(1);
         }
         return voucher;
@@ -101,14 +111,22 @@ public class VoucherService {
         if (dto.getId() == null) {
             voucherToSave = mapToEntity(dto);
         } else {
-            Voucher existing = voucherRepository.findById(dto.getId())
-                    .orElseThrow(() -> new AppException("Voucher không tìm thấy để cập nhật: " + dto.getId()));
+            if (!voucherRepository.existsById(dto.getId())) {
+                throw new AppException("Voucher không tìm thấy để cập nhật: " + dto.getId());
+            }
+
+            // Trả các lượt đang giữ trong bộ nhớ về DB trước khi tính lại số lượt còn lại
+            voucherAllotment.drain(dto.getId());
 
+            // quantity/used_count không được ghi từ form (updatable = false), nên không đè lên lượt đã dùng
             voucherToSave = mapToEntity(dto);
-            voucherToSave.setUsedCount(existing.getUsedCount());
         }
 
         Voucher savedVoucher = voucherRepository.save(voucherToSave);
+        if (dto.getId() != null) {
+            voucherRepository.syncQuantity(savedVoucher.getId(), DEFAULT_QUANTITY);
+        }
+        voucherCache.invalidate();
         return mapToDTO(savedVoucher);
     }
 
@@ -118,7 +136,9 @@ public class VoucherService {
         if (!voucherRepository.existsById(id)) {
             throw new AppException("Voucher không tìm thấy để xóa.");
         }
+        voucherAllotment.drain(id);
         voucherRepository.deleteById(id);
+        voucherCache.invalidate();
     }
 
     // 5. Lấy danh sách voucher (Cho User chọn)
@@ -127,14 +147,51 @@ public class VoucherService {
         return voucherRepository.findAllActiveVouchers();
     }
 
+    // 5b. Xếp hạng các voucher áp dụng được cho tổng đơn (tốt nhất trước).
+    // Điều kiện mã/ngày/loại lấy từ VoucherCache; số lượt còn lại đọc trực tiếp từ DB (1 câu cho top-N)
+    public List<VoucherOptionDTO> findBestVouchers(BigDecimal orderTotal, int limit) {
+        if (orderTotal == null || limit <= 0) return List.of();
+
+        // Bảng xếp hạng chỉ chứa mã còn lượt lúc nạp; kiểm tra lại lượt còn lại thật 1 lần cho top-N
+        List<Voucher> ranked = voucherCache.findBestCandidates(orderTotal, limit);
+        if (ranked.isEmpty()) return List.of();
+
+        Map<Integer, Integer> remaining = new HashMap<>();
+        for (Object[] row : voucherRepository.findQuantitiesByIdIn(ranked.stream().map(Voucher::getId).toList())) {
+            remaining.put((Integer) row[0], (Integer) row[1]);
+        }
+        List<Voucher> candidates = ranked.stream()
+                .filter(voucher -> hasRemainingUses(voucher, remaining.get(voucher.getId())))
+                .toList();
+        // Có mã vừa hết lượt từ lúc nạp -> nạp lại để lần sau bảng xếp hạng không còn mã đó
+        if (candidates.size() < ranked.size()) voucherCache.invalidate();
+
+        return candidates.stream()
+                .map(voucher -> VoucherOptionDTO.builder()
+                        .code(voucher.getCode())
+                        .description(voucher.getDescription())
+                        .discountType(voucher.getDiscountType())
+                        .discountValue(voucher.getDiscountAmount())
+                        .minOrderAmount(voucher.getMinOrder())
+                        .endDate(voucher.getEndDate())
+                        .discountAmount(calculateDiscount(voucher, orderTotal))
+                        .build())
+                .filter(option -> option.getDiscountAmount().signum() > 0)
+                .sorted(Comparator.comparing(VoucherOptionDTO::getDiscountAmount).reversed()
+                        .thenComparing(VoucherOptionDTO::getCode))
+                .limit(limit)
+                .toList();
+    }
+
     // 6. Logic kiểm tra mã Voucher (Cho Checkout)
     public Voucher validateVoucher(String code, BigDecimal orderTotal) {
-        // SỬA: Dùng findByCodeIgnoreCase để không phân biệt hoa thường
-        Voucher voucher = voucherRepository.findByCodeIgnoreCase(code)
+        // Tra trong VoucherCache (không phân biệt hoa thường); mã không tồn tại bị loại mà không chạm DB
+        Voucher voucher = voucherCache.findByCode(code)
                 .orElseThrow(() -> new AppException("Mã giảm giá không tồn tại."));
 
-        // Kiểm tra trạng thái và số lượng
-        if (voucher.getStatus() == 0 || voucher.getQuantity() <= 0) {
+        // Kiểm tra trạng thái và số lượng còn lại hiện tại trong DB (kể cả lượt đang giữ trong bộ nhớ với mã "nóng")
+        if (voucher.getStatus() == 0
+                || !hasRemainingUses(voucher, voucherRepository.findQuantityById(voucher.getId()).orElse(null))) {
             throw new AppException("Mã giảm giá đã hết lượt sử dụng hoặc ngừng hoạt động.");
         }
 
@@ -178,11 +235,37 @@ public class VoucherService {
         return BigDecimal.ZERO;
     }
 
-    // 8. Tăng số lần sử dụng Voucher
+    // Còn lượt trong DB (liveQuantity đọc trực tiếp, null = voucher đã bị xóa), hoặc còn lượt đang giữ trong bộ nhớ với mã "nóng"
+    private boolean hasRemainingUses(Voucher voucher, Integer liveQuantity) {
+        if (liveQuantity == null) return false;
+        return liveQuantity > 0 || voucherAllotment.available(voucher.getId()) > 0;
+    }
+
+    // 8. Lấy 1 lượt sử dụng Voucher (nguyên tử, không đọc-sửa-ghi qua Entity)
+    // Hết lượt -> AppException -> rollback cả đơn hàng đang tạo
     @Transactional
-    public void increaseVoucherUsedCount(Voucher voucher) {
-        voucher.setUsedCount(voucher.getUsedCount() + 1);
-        voucher.setQuantity(voucher.getQuantity() - 1); // Giảm số lượng còn lại
-        voucherRepository.save(voucher);
+    public void claimVoucher(Voucher voucher) {
+        boolean claimed;
+        if (voucherAllotment.isHot(voucher.getCode())) {
+            // Mã "nóng": lấy từ hạn mức giữ sẵn trong bộ nhớ; nếu đơn hàng rollback thì trả lại lượt
+            claimed = voucherAllotment.tryClaim(voucher.getId());
+            if (claimed && TransactionSynchronizationManager.isSynchronizationActive()) {
+                Integer voucherId = voucher.getId();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            voucherAllotment.release(voucherId);
+                        }
+                    }
+                });
+            }
+        } else {
+            claimed = voucherRepository.claimVoucher(voucher.getId(), 1) == 1;
+        }
+
+        if (!claimed) {
+            throw new AppException("Mã giảm giá đã hết lượt sử dụng hoặc ngừng hoạt động.");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.nhom10.coolmate.config;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Manager;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Đo bộ nhớ heap và số HttpSession mà 10.000 khách vãng lai (mỗi request không gửi cookie)
+ * để lại trên Tomcat, ở chế độ CSRF trong session (cũ) và chế độ stateless (cookie).
+ * Chỉ chạy khi bật: mvn test -Dtest=GuestSessionBenchmarkTests -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class GuestSessionBenchmarkTests {
+
+    private static final int VISITORS = 10_000;
+
+    @Nested
+    @TestPropertySource(properties = "coolmate.security.stateless-guests=false")
+    class SessionCsrf {
+        @Autowired
+        private ServletWebServerApplicationContext context;
+
+        @LocalServerPort
+        private int port;
+
+        @Test
+        void everyAnonymousVisitorGetsASession(TestReporter reporter) throws Exception {
+            Result result = run(context, port, reporter);
+            assertTrue(result.sessions() >= VISITORS, "Số session: " + result.sessions());
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "coolmate.security.stateless-guests=true")
+    class StatelessGuests {
+        @Autowired
+        private ServletWebServerApplicationContext context;
+
+        @LocalServerPort
+        private int port;
+
+        @Test
+        void anonymousVisitorsCreateNoSession(TestReporter reporter) throws Exception {
+            Result result = run(context, port, reporter);
+            assertEquals(0, result.sessions());
+        }
+    }
+
+    private record Result(int sessions, long heapBytes) {}
+
+    private static Result run(ServletWebServerApplicationContext context, int port, TestReporter reporter) throws Exception {
+        Manager sessionManager = sessionManager(context);
+        HttpClient client = HttpClient.newHttpClient(); // không có CookieHandler -> mỗi request là 1 khách mới
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/")).GET().build();
+
+        // Làm nóng (JIT, template cache) rồi dọn session sinh ra trong lúc làm nóng
+        for (int i = 0; i < 200; i++) {
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        }
+        for (var session : sessionManager.findSessions()) {
+            session.expire();
+        }
+
+        long heapBefore = usedHeapAfterGc();
+        for (int i = 0; i < VISITORS; i++) {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            assertEquals(200, response.statusCode());
+        }
+        long heapAfter = usedHeapAfterGc();
+
+        Result result = new Result(sessionManager.getActiveSessions(), heapAfter - heapBefore);
+        // Heap chỉ mang tính tham khảo (phụ thuộc GC), báo qua JUnit thay vì kiểm tra cứng
+        reporter.publishEntry(Map.of(
+                "visitors", String.valueOf(VISITORS),
+                "sessions", String.valueOf(result.sessions()),
+                "retainedHeapKb", String.valueOf(result.heapBytes() / 1024),
+                "bytesPerVisitor", String.valueOf(result.heapBytes() / VISITORS)));
+        return result;
+    }
+
+    private static Manager sessionManager(ServletWebServerApplicationContext context) {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        Context tomcatContext = (Context) webServer.getTomcat().getHost().findChildren()[0];
+        return tomcatContext.getManager();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
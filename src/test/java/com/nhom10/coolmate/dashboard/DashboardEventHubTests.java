@@ -0,0 +1,86 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.Order;
+import com.nhom10.coolmate.order.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardEventHubTests {
+
+    private DashboardEventHub hub;
+
+    @BeforeEach
+    void startHub() {
+        hub = new DashboardEventHub(Duration.ofMillis(300), Duration.ofMillis(50));
+        hub.start();
+    }
+
+    @AfterEach
+    void stopHub() {
+        hub.stop();
+    }
+
+    @Test
+    void stalledSubscriberDoesNotDelayOthersAndIsDroppedAfterSendTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch stalledSendStarted = new CountDownLatch(1);
+        CountDownLatch fastReceived = new CountDownLatch(3);
+
+        // Người xem "treo": lần gửi sự kiện đầu tiên không bao giờ trả về (tới khi test nhả ra)
+        hub.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                if (stalledSendStarted.getCount() == 0 || !isEvent(builder)) return;
+                stalledSendStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Kết nối đã đóng");
+            }
+        }, DashboardSummaryDTO.builder().build());
+
+        hub.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                if (isEvent(builder)) fastReceived.countDown();
+            }
+        }, DashboardSummaryDTO.builder().build());
+        assertEquals(2, hub.getSubscriberCount());
+
+        try {
+            for (int i = 1; i <= 3; i++) {
+                hub.orderCreated(Order.builder().id(i).orderCode("CM" + i)
+                        .status(OrderStatus.PENDING).total(BigDecimal.valueOf(100000)).build());
+            }
+
+            assertTrue(stalledSendStarted.await(2, TimeUnit.SECONDS));
+            // Người xem còn lại vẫn nhận đủ sự kiện trong khi người kia đang treo
+            assertTrue(fastReceived.await(2, TimeUnit.SECONDS), "Người xem khác bị chặn bởi kết nối treo");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (hub.getSubscriberCount() != 1 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, hub.getSubscriberCount(), "Kết nối treo quá thời hạn gửi phải bị ngắt");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static boolean isEvent(SseEmitter.SseEventBuilder builder) {
+        return builder.build().stream().anyMatch(part -> String.valueOf(part.getData()).startsWith("event:order"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.nhom10.coolmate.dashboard;
+
+import com.nhom10.coolmate.order.Order;
+import com.nhom10.coolmate.order.OrderStatus;
+import com.nhom10.coolmate.user.Gender;
+import com.nhom10.coolmate.user.Role;
+import com.nhom10.coolmate.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(DashboardSummaryService.class)
+class DashboardSummaryServiceTests {
+
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private int sequence;
+
+    @Test
+    void summaryIsOneGroupedQueryAndCachedBetweenRefreshes() {
+        User user = persist(User.builder()
+                .fullName("Khách hàng").email("khach@coolmate.vn").password("123")
+                .role(Role.USER).status(1).gender(Gender.Nam).build());
+        Timestamp yesterday = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+
+        createOrder(user, OrderStatus.PENDING, 100000, null);
+        createOrder(user, OrderStatus.PENDING, 200000, null);
+        createOrder(user, OrderStatus.DELIVERED, 300000, null);
+        createOrder(user, OrderStatus.CANCELLED, 400000, null);
+        createOrder(user, OrderStatus.DELIVERED, 500000, yesterday);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        DashboardSummaryDTO summary = dashboardSummaryService.getSummary();
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertEquals(5, summary.getTotalOrders());
+        assertEquals(2, summary.getPendingOrders());
+        assertEquals(2L, summary.getOrdersByStatus().get(OrderStatus.DELIVERED));
+        assertEquals(0L, summary.getOrdersByStatus().get(OrderStatus.SHIPPED));
+        // Hôm nay: 3 đơn không bị hủy
+        assertEquals(3, summary.getTodayOrders());
+        assertEquals(0, new BigDecimal("600000").compareTo(summary.getTodayRevenue()));
+        assertEquals(1, summary.getNewUsersToday());
+
+        // Tải lại trong TTL: không truy vấn
+        statistics.clear();
+        assertSame(summary, dashboardSummaryService.getSummary());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private void createOrder(User user, OrderStatus status, long total, Timestamp createdAt) {
+        Order order = persist(Order.builder()
+                .orderCode("CM-TEST-" + (++sequence))
+                .user(user)
+                .subTotal(BigDecimal.valueOf(total))
+                .total(BigDecimal.valueOf(total))
+                .discountAmount(BigDecimal.ZERO)
+                .status(status)
+                .recipientName("Khách hàng").recipientPhone("0900000000").deliveryAddress("Hà Nội")
+                .build());
+        if (createdAt != null) {
+            entityManager.flush();
+            entityManager.createQuery("UPDATE Order o SET o.createdAt = :createdAt WHERE o.id = :id")
+                    .setParameter("createdAt", createdAt).setParameter("id", order.getId()).executeUpdate();
+        }
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,48 @@
+package com.nhom10.coolmate.dashboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeaderboardTests {
+
+    @Test
+    void topKMatchesFullSortUnderIncrementsAndDecrements() {
+        Random random = new Random(7);
+        Leaderboard board = new Leaderboard(10);
+        Map<Integer, Long> exact = new HashMap<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            int id = random.nextInt(500);
+            long current = exact.getOrDefault(id, 0L);
+            // Phần lớn là bán thêm; thỉnh thoảng trừ lại (hết khung thời gian)
+            long delta = random.nextInt(20) == 0 && current > 0
+                    ? -(1 + random.nextInt((int) Math.min(current, 5)))
+                    : 1 + random.nextInt(3);
+            board.add(id, delta);
+            exact.merge(id, delta, Long::sum);
+            exact.remove(id, 0L);
+
+            if (step % 997 == 0) {
+                assertEquals(expectedTop(exact, 10), board.top(10), "Bước " + step);
+            }
+        }
+        assertEquals(expectedTop(exact, 5), board.top(5));
+        assertEquals(exact.getOrDefault(42, 0L), board.count(42));
+    }
+
+    private static List<Leaderboard.Entry> expectedTop(Map<Integer, Long> exact, int k) {
+        return exact.entrySet().stream()
+                .map(e -> new Leaderboard.Entry(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparingLong(Leaderboard.Entry::count).reversed()
+                        .thenComparingInt(Leaderboard.Entry::id))
+                .limit(k)
+                .toList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.nhom10.coolmate.dashboard;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Khối dữ liệu được dựng đúng lúc 1 đơn vừa commit nhưng delta chưa kịp áp: đơn đó không được cộng 2 lần
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        // DB riêng vì test này commit dữ liệu thật
+        "spring.datasource.url=jdbc:h2:mem:sales_reload_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+class SalesAnalyticsReloadTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 8);
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void reportBuiltBetweenCommitAndDeltaCountsOrderOnce() {
+        BigDecimal revenue = BigDecimal.valueOf(300000);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Đăng ký trước delta nên chạy trước: dựng khối dữ liệu ở luồng khác, lúc đơn đã commit mà delta chưa áp
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    CompletableFuture.supplyAsync(() -> report().getTotalRevenue()).orTimeout(30, TimeUnit.SECONDS).join();
+                }
+            });
+            dailySalesRepository.save(DailySales.builder()
+                    .saleDate(DAY).orderCount(1L).unitsSold(2L).revenue(revenue).build());
+            salesAnalyticsService.recordDelta(DAY, 1, 2, revenue, List.of());
+        });
+
+        SalesReportDTO report = report();
+        assertEquals(1L, report.getTotalOrders());
+        assertEquals(2L, report.getTotalUnits());
+        assertEquals(0, revenue.compareTo(report.getTotalRevenue()));
+    }
+
+    private SalesReportDTO report() {
+        return salesAnalyticsService.report(DAY, DAY, SalesGranularity.DAY, SalesDimension.NONE);
+    }
+}
@@ -0,0 +1,165 @@
+package com.nhom10.coolmate.dashboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SalesCubeTests {
+
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+    private static final String[] CATEGORIES = {"Áo thun", "Quần short", "Đồ lót"};
+    private static final String[] SIZES = {"S", "M", "L", "XL"};
+    private static final String[] COLORS = {"Đen", "Trắng", "Xanh"};
+
+    private record Sale(LocalDate day, List<SalesCube.VariantSale> items, BigDecimal total) {}
+
+    @Test
+    void incrementalDeltasMatchFullBuildAndBruteForce() {
+        Random random = new Random(42);
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            LocalDate day = START.plusDays(random.nextInt(900));
+            List<SalesCube.VariantSale> items = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int k = 0, count = 1 + random.nextInt(3); k < count; k++) {
+                int variantId = 1 + random.nextInt(60);
+                long units = 1 + random.nextInt(4);
+                BigDecimal revenue = BigDecimal.valueOf(99_000L + variantId * 1_000L).multiply(BigDecimal.valueOf(units));
+                items.add(variant(variantId, units, revenue));
+                total = total.add(revenue);
+            }
+            sales.add(new Sale(day, items, total));
+        }
+
+        // Khối 1: áp từng đơn theo thứ tự ngẫu nhiên, kèm một số delta được cộng rồi trừ lại
+        SalesCube incremental = new SalesCube.Builder(0, 0).build();
+        List<Sale> shuffled = new ArrayList<>(sales);
+        Collections.shuffle(shuffled, random);
+        for (Sale sale : shuffled) {
+            incremental = apply(incremental, sale, 1);
+            if (random.nextInt(10) == 0) {
+                Sale reverted = new Sale(START.plusDays(random.nextInt(900)), List.of(variant(61 + random.nextInt(5), 2,
+                        BigDecimal.valueOf(150_000))), BigDecimal.valueOf(150_000));
+                incremental = apply(incremental, reverted, 1);
+                incremental = apply(incremental, reverted, -1);
+            }
+        }
+
+        // Khối 2: dựng 1 lần từ các dòng đã gom theo ngày (như đọc từ bảng tổng hợp)
+        SalesCube full = buildFromRollups(sales);
+
+        LocalDate from = START.plusDays(100);
+        LocalDate to = START.plusDays(700);
+        for (SalesGranularity granularity : SalesGranularity.values()) {
+            for (SalesDimension dimension : SalesDimension.values()) {
+                List<SalesReportDTO.Row> expected = bruteForce(sales, from, to, granularity, dimension);
+                assertEquals(expected, normalize(full.aggregate(from, to, granularity, dimension)),
+                        granularity + "/" + dimension);
+                assertEquals(expected, normalize(incremental.aggregate(from, to, granularity, dimension)),
+                        granularity + "/" + dimension);
+            }
+        }
+    }
+
+    private static SalesCube.VariantSale variant(int variantId, long units, BigDecimal revenue) {
+        return new SalesCube.VariantSale(variantId, CATEGORIES[variantId % CATEGORIES.length],
+                SIZES[variantId % SIZES.length], COLORS[variantId % COLORS.length], units, revenue);
+    }
+
+    private static SalesCube apply(SalesCube cube, Sale sale, int sign) {
+        BigDecimal signum = BigDecimal.valueOf(sign);
+        List<SalesCube.VariantSale> items = sale.items().stream()
+                .map(item -> new SalesCube.VariantSale(item.variantId(), item.category(), item.size(), item.color(),
+                        sign * item.units(), item.revenue().multiply(signum)))
+                .toList();
+        long units = items.stream().mapToLong(SalesCube.VariantSale::units).sum();
+        return cube.plus(sale.day(), sign, units, sale.total().multiply(signum), items);
+    }
+
+    private static SalesCube buildFromRollups(List<Sale> sales) {
+        Map<LocalDate, long[]> days = new TreeMap<>();
+        Map<LocalDate, Map<Integer, SalesCube.VariantSale>> variants = new TreeMap<>();
+        for (Sale sale : sales) {
+            long[] day = days.computeIfAbsent(sale.day(), d -> new long[3]);
+            day[0]++;
+            day[2] += SalesCube.toCents(sale.total());
+            for (SalesCube.VariantSale item : sale.items()) {
+                day[1] += item.units();
+                variants.computeIfAbsent(sale.day(), d -> new TreeMap<>()).merge(item.variantId(), item,
+                        (a, b) -> new SalesCube.VariantSale(a.variantId(), a.category(), a.size(), a.color(),
+                                a.units() + b.units(), a.revenue().add(b.revenue())));
+            }
+        }
+        int variantRows = variants.values().stream().mapToInt(Map::size).sum();
+        SalesCube.Builder builder = new SalesCube.Builder(days.size(), variantRows);
+        days.forEach((day, totals) -> builder.day(day, totals[0], totals[1], SalesCube.fromCents(totals[2])));
+        variants.forEach((day, byVariant) -> byVariant.values().forEach(sale -> builder.variant(day, sale)));
+        return builder.build();
+    }
+
+    private static List<SalesReportDTO.Row> bruteForce(List<Sale> sales, LocalDate from, LocalDate to,
+                                                       SalesGranularity granularity, SalesDimension dimension) {
+        // (kỳ, nhóm) -> [số đơn, số lượng, doanh thu]
+        Map<String, long[]> totals = new TreeMap<>();
+        Map<String, String[]> keys = new TreeMap<>();
+        for (Sale sale : sales) {
+            if (sale.day().isBefore(from) || sale.day().isAfter(to)) continue;
+            LocalDate period = granularity.periodStart(sale.day());
+            if (dimension == SalesDimension.NONE) {
+                String key = period.toString();
+                keys.putIfAbsent(key, new String[]{period.toString(), null});
+                long[] acc = totals.computeIfAbsent(key, k -> new long[3]);
+                acc[0]++;
+                acc[1] += sale.items().stream().mapToLong(SalesCube.VariantSale::units).sum();
+                acc[2] += SalesCube.toCents(sale.total());
+                continue;
+            }
+            for (SalesCube.VariantSale item : sale.items()) {
+                String group = switch (dimension) {
+                    case CATEGORY -> item.category();
+                    case SIZE -> item.size();
+                    default -> item.color();
+                };
+                String key = period + "|" + group;
+                keys.putIfAbsent(key, new String[]{period.toString(), group});
+                long[] acc = totals.computeIfAbsent(key, k -> new long[3]);
+                acc[1] += item.units();
+                acc[2] += SalesCube.toCents(item.revenue());
+            }
+        }
+
+        List<SalesReportDTO.Row> rows = new ArrayList<>();
+        totals.forEach((key, acc) -> {
+            String[] parts = keys.get(key);
+            LocalDate period = LocalDate.parse(parts[0]);
+            BigDecimal revenue = SalesCube.fromCents(acc[2]);
+            boolean grouped = dimension != SalesDimension.NONE;
+            rows.add(SalesReportDTO.Row.builder()
+                    .periodStart(period).period(granularity.label(period)).group(parts[1])
+                    .orders(grouped ? null : acc[0]).units(acc[1]).revenue(revenue)
+                    .averageOrderValue(grouped ? null : SalesCube.averageOf(revenue, acc[0]))
+                    .build());
+        });
+        return normalize(rows);
+    }
+
+    // So sánh không phụ thuộc thứ tự các nhóm trong cùng 1 kỳ
+    private static List<SalesReportDTO.Row> normalize(List<SalesReportDTO.Row> rows) {
+        List<SalesReportDTO.Row> sorted = new ArrayList<>(rows);
+        sorted.sort((a, b) -> {
+            int byPeriod = a.getPeriodStart().compareTo(b.getPeriodStart());
+            if (byPeriod != 0) return byPeriod;
+            return String.valueOf(a.getGroup()).compareTo(String.valueOf(b.getGroup()));
+        });
+        return sorted;
+    }
+}
@@ -0,0 +1,108 @@
+package com.nhom10.coolmate.order;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderCodeGeneratorTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    @Test
+    void millionsOfCodesAcrossThreadsAreUniqueAndIncreasingPerThread() throws Exception {
+        int threads = 8;
+        int perThread = 500_000;
+        OrderCodeGenerator generator = new OrderCodeGenerator(7);
+        long[][] states = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] out = states[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    out[i] = generator.nextState();
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < perThread; i++) {
+                assertTrue(states[t][i] > states[t][i - 1], "Mã phải tăng dần trong mỗi luồng");
+            }
+            System.arraycopy(states[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "Trùng mã ở vị trí " + i);
+        }
+    }
+
+    @Test
+    void codesAreReadableAndSortable() {
+        long noon = LocalDateTime.of(2025, 10, 18, 12, 0).atZone(ZONE).toInstant().toEpochMilli();
+        OrderCodeGenerator generator = new OrderCodeGenerator(3, () -> noon, ZONE);
+
+        String previous = generator.nextCode();
+        assertTrue(previous.matches("CM251018[0-9A-Z]{10}"), previous);
+        for (int i = 0; i < 10_000; i++) {
+            String code = generator.nextCode();
+            assertTrue(code.compareTo(previous) > 0, previous + " >= " + code);
+            previous = code;
+        }
+    }
+
+    @Test
+    void staysMonotonicWhenClockGoesBackwards() {
+        AtomicLong now = new AtomicLong(LocalDateTime.of(2025, 10, 18, 12, 0).atZone(ZONE).toInstant().toEpochMilli());
+        OrderCodeGenerator generator = new OrderCodeGenerator(0, now::get, ZONE);
+
+        String first = generator.nextCode();
+        now.addAndGet(-5_000); // đồng hồ hệ thống bị chỉnh lùi 5 giây
+        String second = generator.nextCode();
+
+        assertTrue(second.compareTo(first) > 0, first + " >= " + second);
+    }
+
+    @Test
+    void differentNodesNeverCollide() {
+        long noon = LocalDateTime.of(2025, 10, 18, 12, 0).atZone(ZONE).toInstant().toEpochMilli();
+        OrderCodeGenerator nodeA = new OrderCodeGenerator(1, () -> noon, ZONE);
+        OrderCodeGenerator nodeB = new OrderCodeGenerator(2, () -> noon, ZONE);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            codes.add(nodeA.nextCode());
+            codes.add(nodeB.nextCode());
+        }
+        assertEquals(200_000, codes.size());
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderCodeGenerator(OrderCodeGenerator.MAX_NODE_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderCodeGenerator(-1));
+    }
+}
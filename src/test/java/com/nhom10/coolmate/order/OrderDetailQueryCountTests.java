@@ -0,0 +1,183 @@
+package com.nhom10.coolmate.order;
+
+import com.nhom10.coolmate.cart.CartService;
+import com.nhom10.coolmate.category.Category;
+import com.nhom10.coolmate.dashboard.BestsellerTracker;
+import com.nhom10.coolmate.dashboard.DashboardEventHub;
+import com.nhom10.coolmate.dashboard.SalesAnalyticsService;
+import com.nhom10.coolmate.dashboard.SalesRollupService;
+import com.nhom10.coolmate.product.CoPurchaseIndex;
+import com.nhom10.coolmate.product.Product;
+import com.nhom10.coolmate.product.ProductCardService;
+import com.nhom10.coolmate.product.ProductImage;
+import com.nhom10.coolmate.product.ProductVariant;
+import com.nhom10.coolmate.sizes.Sizes;
+import com.nhom10.coolmate.user.Gender;
+import com.nhom10.coolmate.user.Role;
+import com.nhom10.coolmate.user.User;
+import com.nhom10.coolmate.vouchers.VoucherService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderService.class, OrderCodeGenerator.class, SalesRollupService.class, SalesAnalyticsService.class, BestsellerTracker.class, CoPurchaseIndex.class, DashboardEventHub.class, ProductCardService.class})
+class OrderDetailQueryCountTests {
+
+    // Đơn + người đặt + voucher, giỏ hàng của người đặt (User.cart là OneToOne phía mappedBy nên luôn được tải),
+    // sản phẩm (kèm biến thể/size), ảnh đại diện
+    private static final long EXPECTED_DETAIL_QUERIES = 4;
+    // Lịch sử đơn hàng: mỗi trang là 1 câu tóm tắt duy nhất
+    private static final long EXPECTED_HISTORY_PAGE_QUERIES = 1;
+
+    @MockitoBean
+    private CartService cartService;
+
+    @MockitoBean
+    private VoucherService voucherService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Category category;
+    private Sizes size;
+    private User user;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        category = persist(Category.builder().name("Áo thun").build());
+        size = persist(Sizes.builder().sizeName("M").build());
+        user = persist(User.builder()
+                .fullName("Khách hàng").email("khach@coolmate.vn").password("123")
+                .role(Role.USER).status(1).gender(Gender.Nam).build());
+    }
+
+    @Test
+    void orderDetailQueryCountDoesNotGrowWithItemCount() {
+        Order small = createOrder(2);
+        Order large = createOrder(30);
+
+        long smallDetail = countQueries(() -> orderService.getOrderDetail(small.getId()), 2);
+        long largeDetail = countQueries(() -> orderService.getOrderDetail(large.getId()), 30);
+
+        assertEquals(smallDetail, largeDetail, "Số câu truy vấn không được tăng theo số sản phẩm trong đơn");
+        assertTrue(largeDetail <= EXPECTED_DETAIL_QUERIES, "Số câu truy vấn: " + largeDetail);
+    }
+
+    @Test
+    void orderHistoryPagesAreSingleQuerySummaries() {
+        for (int i = 0; i < 25; i++) {
+            createOrder(3);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            OrderHistoryPageDTO page = orderService.getMyOrderHistory(user.getEmail(), cursor);
+            assertEquals(EXPECTED_HISTORY_PAGE_QUERIES, statistics.getPrepareStatementCount());
+            assertEquals(cursor == null, page.isFirstPage());
+
+            for (OrderHistoryItemDTO order : page.getOrders()) {
+                assertEquals(3L, order.getItemCount());
+                assertTrue(order.getFirstProductName().startsWith("Áo thun"));
+                assertTrue(order.getFirstThumbnail().endsWith("-1.jpg"));
+                seen.add(order.getId());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Đủ 25 đơn, không trùng, mới nhất trước
+        assertEquals(3, pages);
+        assertEquals(25, seen.size());
+        List<Integer> expected = new ArrayList<>(seen);
+        expected.sort(Comparator.reverseOrder());
+        assertEquals(expected, seen);
+    }
+
+    private long countQueries(Supplier<OrderDTO> action, int expectedItems) {
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        OrderDTO order = action.get();
+
+        // Chạm vào mọi trường mà các trang chi tiết đơn hàng hiển thị
+        assertEquals("Khách hàng", order.getUser().getFullName());
+        for (OrderDTO.OrderItemDTO item : order.getOrderItems()) {
+            assertTrue(item.getProduct().getName().startsWith("Áo thun"));
+            assertEquals("M", item.getSize().getSizeName());
+            assertEquals("Đen", item.getColor());
+            assertEquals(1, item.getProduct().getImages().size());
+            assertTrue(item.getProduct().getImages().get(0).getImageUrl().endsWith("-1.jpg"));
+        }
+        assertEquals(expectedItems, order.getOrderItems().size());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Order createOrder(int itemCount) {
+        Order order = persist(Order.builder()
+                .orderCode("CM-TEST-" + (++sequence))
+                .user(user)
+                .subTotal(BigDecimal.valueOf(199000L * itemCount))
+                .total(BigDecimal.valueOf(199000L * itemCount))
+                .discountAmount(BigDecimal.ZERO)
+                .status(OrderStatus.PENDING)
+                .recipientName("Khách hàng").recipientPhone("0900000000").deliveryAddress("Hà Nội")
+                .build());
+
+        for (int i = 0; i < itemCount; i++) {
+            Product product = persist(Product.builder()
+                    .name("Áo thun " + sequence + "-" + i)
+                    .price(BigDecimal.valueOf(199000))
+                    .category(category)
+                    .build());
+            ProductVariant variant = persist(ProductVariant.builder()
+                    .product(product).size(size).color("Đen").quantity(10).build());
+            persist(ProductImage.builder().product(product).imageUrl("/uploads/products/" + product.getId() + "-1.jpg").build());
+            persist(ProductImage.builder().product(product).imageUrl("/uploads/products/" + product.getId() + "-2.jpg").build());
+            persist(OrderItem.builder().order(order).productVariant(variant).quantity(1).price(BigDecimal.valueOf(199000)).build());
+        }
+        return order;
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
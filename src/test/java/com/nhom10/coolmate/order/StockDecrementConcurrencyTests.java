@@ -0,0 +1,131 @@
+package com.nhom10.coolmate.order;
+
+import com.nhom10.coolmate.cart.Cart;
+import com.nhom10.coolmate.cart.CartItem;
+import com.nhom10.coolmate.cart.CartItemRepository;
+import com.nhom10.coolmate.cart.CartRepository;
+import com.nhom10.coolmate.category.Category;
+import com.nhom10.coolmate.category.CategoryRepository;
+import com.nhom10.coolmate.exception.AppException;
+import com.nhom10.coolmate.product.Product;
+import com.nhom10.coolmate.product.ProductRepository;
+import com.nhom10.coolmate.product.ProductVariant;
+import com.nhom10.coolmate.product.ProductVariantRepository;
+import com.nhom10.coolmate.sizes.Sizes;
+import com.nhom10.coolmate.sizes.SizesRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 500 khách cùng lúc đặt mua 1 SKU chỉ còn 100 cái: không được bán vượt tồn kho
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        // DB riêng vì test này commit dữ liệu thật
+        "spring.datasource.url=jdbc:h2:mem:stock_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.hikari.maximum-pool-size=50"
+})
+class StockDecrementConcurrencyTests {
+
+    private static final int BUYERS = 500;
+    private static final int INITIAL_STOCK = 100;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SizesRepository sizesRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Category category = categoryRepository.save(Category.builder().name("Flash sale").build());
+        Sizes size = sizesRepository.save(Sizes.builder().sizeName("M").build());
+        Product product = productRepository.save(Product.builder()
+                .name("Áo flash sale").price(BigDecimal.valueOf(99000)).discountPercent(0).category(category).build());
+        ProductVariant variant = variantRepository.save(ProductVariant.builder()
+                .product(product).size(size).color("Đen").quantity(INITIAL_STOCK).build());
+
+        // Mỗi khách có 1 giỏ hàng (guest) chứa 1 sản phẩm của SKU này
+        List<String> cartTokens = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            String token = UUID.randomUUID().toString();
+            Cart cart = cartRepository.save(Cart.builder().sessionToken(token).build());
+            cartItemRepository.save(CartItem.builder()
+                    .cart(cart).productVariant(variant).quantity(1).priceAtTime(BigDecimal.valueOf(99000)).build());
+            cartTokens.add(token);
+        }
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+
+        for (String token : cartTokens) {
+            pool.submit(() -> {
+                MockHttpServletRequest request = new MockHttpServletRequest();
+                request.setCookies(new Cookie("CART_SESSION", token));
+                try {
+                    start.await();
+                    orderService.createOrder("Khách", "0900000000", "Hà Nội", null, "COD",
+                            request, new MockHttpServletResponse(), null, null, null);
+                    placed.incrementAndGet();
+                } catch (AppException e) {
+                    outOfStock.incrementAndGet();
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                }
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES), "Các luồng đặt hàng không kết thúc kịp");
+
+        int remaining = variantRepository.findById(variant.getId()).orElseThrow().getQuantity();
+
+        assertTrue(unexpected.isEmpty(), "Lỗi không mong đợi: " + unexpected.peek());
+        assertEquals(BUYERS - INITIAL_STOCK, outOfStock.get());
+        assertEquals(0, remaining);
+        assertEquals(INITIAL_STOCK, placed.get(), "Số đơn đặt thành công phải đúng bằng tồn kho ban đầu");
+        assertEquals(INITIAL_STOCK, orderRepository.count());
+    }
+}
@@ -0,0 +1,53 @@
+package com.nhom10.coolmate.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CoPurchaseIndexTests {
+
+    @Test
+    void neighborsMatchPairCountsUnderDeliveries() {
+        Random random = new Random(11);
+        // Không có transaction: delta được áp ngay
+        CoPurchaseIndex index = new CoPurchaseIndex(null);
+        Map<Integer, Map<Integer, Integer>> exact = new HashMap<>();
+
+        for (int step = 0; step < 3_000; step++) {
+            Set<Integer> basket = new LinkedHashSet<>();
+            int items = 1 + random.nextInt(5);
+            for (int i = 0; i < items; i++) {
+                basket.add(random.nextInt(60));
+            }
+
+            index.record(basket);
+            for (int a : basket) {
+                for (int b : basket) {
+                    if (a != b) exact.computeIfAbsent(a, id -> new HashMap<>()).merge(b, 1, Integer::sum);
+                }
+            }
+        }
+
+        for (int productId = 0; productId < 60; productId++) {
+            assertEquals(expectedNeighbors(exact.getOrDefault(productId, Map.of())), index.neighbors(productId),
+                    "Sản phẩm " + productId);
+        }
+    }
+
+    private static List<Integer> expectedNeighbors(Map<Integer, Integer> row) {
+        return row.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(CoPurchaseIndex.TOP_N)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.nhom10.coolmate.product;
+
+import com.nhom10.coolmate.cart.Cart;
+import com.nhom10.coolmate.cart.CartItem;
+import com.nhom10.coolmate.cart.CartItemRepository;
+import com.nhom10.coolmate.cart.CartRepository;
+import com.nhom10.coolmate.category.Category;
+import com.nhom10.coolmate.category.CategoryRepository;
+import com.nhom10.coolmate.exception.AppException;
+import com.nhom10.coolmate.order.OrderService;
+import com.nhom10.coolmate.sizes.Sizes;
+import com.nhom10.coolmate.sizes.SizesRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Khách đồng thời mua hết 2 biến thể của cùng 1 sản phẩm: thẻ sản phẩm phải về "hết hàng", tồn kho từng biến thể = 0
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        // DB riêng vì test này commit dữ liệu thật
+        "spring.datasource.url=jdbc:h2:mem:card_stock_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.hikari.maximum-pool-size=50"
+})
+class ProductCardStockConcurrencyTests {
+
+    private static final int BUYERS = 120;
+    private static final int STOCK_PER_VARIANT = 30;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductCardService productCardService;
+
+    @Autowired
+    private ProductCardRepository productCardRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SizesRepository sizesRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Test
+    void concurrentCheckoutsOnDifferentVariantsLeaveCardSoldOut() throws Exception {
+        Category category = categoryRepository.save(Category.builder().name("Flash sale").build());
+        Sizes sizeM = sizesRepository.save(Sizes.builder().sizeName("M").build());
+        Sizes sizeL = sizesRepository.save(Sizes.builder().sizeName("L").build());
+        Product product = productRepository.save(Product.builder()
+                .name("Áo flash sale").price(BigDecimal.valueOf(99000)).discountPercent(0).category(category).build());
+        List<ProductVariant> variants = List.of(
+                variantRepository.save(ProductVariant.builder()
+                        .product(product).size(sizeM).color("Đen").quantity(STOCK_PER_VARIANT).build()),
+                variantRepository.save(ProductVariant.builder()
+                        .product(product).size(sizeL).color("Trắng").quantity(STOCK_PER_VARIANT).build()));
+        productCardService.refresh(List.of(product.getId()));
+        assertTrue(productCardRepository.findById(product.getId()).orElseThrow().getInStock());
+
+        // Khách xen kẽ giữa 2 biến thể
+        List<String> cartTokens = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            String token = UUID.randomUUID().toString();
+            Cart cart = cartRepository.save(Cart.builder().sessionToken(token).build());
+            cartItemRepository.save(CartItem.builder()
+                    .cart(cart).productVariant(variants.get(i % 2)).quantity(1).priceAtTime(BigDecimal.valueOf(99000)).build());
+            cartTokens.add(token);
+        }
+
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+
+        for (String token : cartTokens) {
+            pool.submit(() -> {
+                MockHttpServletRequest request = new MockHttpServletRequest();
+                request.setCookies(new Cookie("CART_SESSION", token));
+                try {
+                    start.await();
+                    orderService.createOrder("Khách", "0900000000", "Hà Nội", null, "COD",
+                            request, new MockHttpServletResponse(), null, null, null);
+                } catch (AppException e) {
+                    // Hết hàng
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                }
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES), "Các luồng đặt hàng không kết thúc kịp");
+        assertTrue(unexpected.isEmpty(), "Lỗi không mong đợi: " + unexpected.peek());
+
+        // Thẻ được luồng nền ghi lại sau khi các đơn commit: ghi nốt phần còn chờ
+        productCardService.writePendingStock();
+
+        ProductCard card = productCardRepository.findById(product.getId()).orElseThrow();
+        assertFalse(card.getInStock(), "Thẻ sản phẩm phải về hết hàng");
+        List<ProductDTO> listed = productCardService.toDTOs(List.of(card));
+        assertEquals(2, listed.get(0).getProductVariants().size());
+        for (ProductDTO.ProductSizeColorStockDTO variant : listed.get(0).getProductVariants()) {
+            assertEquals(0, variant.getStock(), "Tồn kho trên thẻ của biến thể " + variant.getSizeName());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.nhom10.coolmate.product;
+
+import com.nhom10.coolmate.category.Category;
+import com.nhom10.coolmate.comment.Comment;
+import com.nhom10.coolmate.comment.CommentService;
+import com.nhom10.coolmate.comment.ProductRating;
+import com.nhom10.coolmate.dashboard.BestsellerTracker;
+import com.nhom10.coolmate.sizes.Sizes;
+import com.nhom10.coolmate.user.Gender;
+import com.nhom10.coolmate.user.Role;
+import com.nhom10.coolmate.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ProductService.class, CommentService.class, ProductSearchIndex.class, BestsellerTracker.class, ProductCardService.class})
+class ProductListingQueryCountTests {
+
+    // 1 câu lấy sản phẩm + 4 câu batch (danh mục, biến thể, ảnh, bảng thống kê đánh giá)
+    private static final long EXPECTED_QUERIES = 5;
+    // Trang danh sách storefront: 1 câu trên bảng product_cards
+    private static final long EXPECTED_STOREFRONT_PAGE_QUERIES = 1;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCardService productCardService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void listingQueryCountDoesNotGrowWithPageSize() {
+        Category category = persist(Category.builder().name("Áo thun").build());
+        Sizes sizeM = persist(Sizes.builder().sizeName("M").build());
+        Sizes sizeL = persist(Sizes.builder().sizeName("L").build());
+        User user = persist(User.builder()
+                .fullName("Khách hàng").email("khach@coolmate.vn").password("123")
+                .role(Role.USER).status(1).gender(Gender.Nam).build());
+
+        createProducts(5, category, sizeM, sizeL, user);
+        long smallListing = countQueriesForListing(5);
+
+        createProducts(35, category, sizeM, sizeL, user);
+        long largeListing = countQueriesForListing(40);
+
+        assertEquals(smallListing, largeListing, "Số câu truy vấn không được tăng theo số sản phẩm");
+        assertTrue(largeListing > 0 && largeListing <= EXPECTED_QUERIES, "Số câu truy vấn: " + largeListing);
+    }
+
+    @Test
+    void storefrontPagesAreSingleQueryReadsOfProductCards() {
+        Category category = persist(Category.builder().name("Áo thun").build());
+        Sizes sizeM = persist(Sizes.builder().sizeName("M").build());
+        Sizes sizeL = persist(Sizes.builder().sizeName("L").build());
+        User user = persist(User.builder()
+                .fullName("Khách hàng").email("khach@coolmate.vn").password("123")
+                .role(Role.USER).status(1).gender(Gender.Nam).build());
+        createProducts(40, category, sizeM, sizeL, user);
+        entityManager.flush();
+        productCardService.rebuildAll();
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        int seen = 0;
+        String cursor = null;
+        do {
+            statistics.clear();
+            ProductPageDTO page = productService.getFilteredProducts(null, null, null, null, "createdAt_desc", cursor);
+            assertEquals(EXPECTED_STOREFRONT_PAGE_QUERIES, statistics.getPrepareStatementCount());
+
+            // Chạm vào mọi trường mà thẻ sản phẩm và popup chọn nhanh hiển thị
+            for (ProductDTO dto : page.getProducts()) {
+                assertEquals("Áo thun", dto.getCategoryName());
+                assertEquals(0, BigDecimal.valueOf(179100).compareTo(dto.getCurrentPrice()));
+                assertEquals(0, BigDecimal.valueOf(199000).compareTo(dto.getOldPrice()));
+                assertTrue(dto.getImageUrl().endsWith("-1.jpg"));
+                assertEquals(4.5, dto.getAverageRating());
+                assertEquals(2, dto.getProductVariants().size());
+                assertEquals("M", dto.getProductVariants().get(0).getSizeName());
+                assertEquals(10, dto.getProductVariants().get(0).getStock());
+            }
+            seen += page.getProducts().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(40, seen);
+    }
+
+    @Test
+    void indexedSortsPageThroughEveryProductExactlyOnce() {
+        Category category = persist(Category.builder().name("Áo thun").build());
+        Sizes sizeM = persist(Sizes.builder().sizeName("M").build());
+        Sizes sizeL = persist(Sizes.builder().sizeName("L").build());
+        User user = persist(User.builder()
+                .fullName("Khách hàng").email("khach@coolmate.vn").password("123")
+                .role(Role.USER).status(1).gender(Gender.Nam).build());
+        createProducts(60, category, sizeM, sizeL, user);
+        entityManager.flush();
+        productCardService.rebuildAll();
+        searchIndex.rebuild();
+
+        // Không từ khóa + "bán chạy nhất", và có từ khóa: cả 2 đều seek trên danh sách kết quả trong bộ nhớ
+        for (String[] query : new String[][]{{null, "bestseller"}, {"áo thun", "price_asc"}, {"áo thun", "relevance"}}) {
+            Set<Integer> seen = new HashSet<>();
+            int pages = 0;
+            String cursor = null;
+            do {
+                ProductPageDTO page = productService.getFilteredProducts(query[0], null, null, null, query[1], cursor);
+                for (ProductDTO dto : page.getProducts()) {
+                    assertTrue(seen.add(dto.getId()), query[1] + ": sản phẩm " + dto.getId() + " xuất hiện 2 lần");
+                }
+                pages++;
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertEquals(60, seen.size(), query[1]);
+            assertEquals(3, pages, query[1]);
+        }
+    }
+
+    private long countQueriesForListing(int expectedProducts) {
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ProductDTO> products = productService.getAllProducts(null);
+
+        // Chạm vào mọi trường mà trang danh sách hiển thị
+        for (ProductDTO dto : products) {
+            assertEquals("Áo thun", dto.getCategoryName());
+            assertEquals(2, dto.getProductVariants().size());
+            assertEquals(2, dto.getExistingImages().size());
+            assertEquals(4.5, dto.getAverageRating());
+        }
+        assertEquals(expectedProducts, products.size());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createProducts(int count, Category category, Sizes sizeM, Sizes sizeL, User user) {
+        for (int i = 0; i < count; i++) {
+            Product product = persist(Product.builder()
+                    .name("Áo thun " + i)
+                    .price(BigDecimal.valueOf(199000))
+                    .discountPercent(10)
+                    .material("Cotton")
+                    .category(category)
+                    .build());
+
+            persist(ProductVariant.builder().product(product).size(sizeM).color("Đen").quantity(10).build());
+            persist(ProductVariant.builder().product(product).size(sizeL).color("Trắng").quantity(5).build());
+            persist(ProductImage.builder().product(product).imageUrl("/uploads/products/" + i + "-1.jpg").build());
+            persist(ProductImage.builder().product(product).imageUrl("/uploads/products/" + i + "-2.jpg").build());
+            persist(Comment.builder().product(product).user(user).content("Đẹp").rate(5).build());
+            persist(Comment.builder().product(product).user(user).content("Ổn").rate(4).build());
+            persist(ProductRating.builder().productId(product.getId()).ratingCount(2L).ratingSum(9L)
+                    .star1(0L).star2(0L).star3(0L).star4(1L).star5(1L).build());
+        }
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,52 @@
+package com.nhom10.coolmate.product;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(ProductViewCounter.class)
+class ProductViewCounterTests {
+
+    @Autowired
+    private ProductViewCounter productViewCounter;
+
+    @Autowired
+    private ProductViewCountRepository productViewCountRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void flushAccumulatesDeltasInDatabase() {
+        for (int i = 0; i < 5; i++) productViewCounter.recordView(1);
+        productViewCounter.recordView(2);
+
+        assertEquals(2, productViewCounter.flush());
+        assertEquals(5L, productViewCountRepository.findById(1).orElseThrow().getViewCount());
+        assertEquals(1L, productViewCountRepository.findById(2).orElseThrow().getViewCount());
+
+        // Lần ghi sau chỉ cộng phần mới, sản phẩm không có lượt xem mới thì không ghi
+        for (int i = 0; i < 3; i++) productViewCounter.recordView(1);
+        assertEquals(1, productViewCounter.flush());
+        assertEquals(0, productViewCounter.flush());
+
+        // Tổng hiển thị = đã ghi + đang chờ ghi (bỏ các dòng đã nạp ở trên: câu upsert ghi thẳng bằng JDBC)
+        entityManager.clear();
+        productViewCounter.recordView(3);
+        Map<Integer, Long> counts = productViewCounter.getViewCounts();
+        assertEquals(8L, counts.get(1));
+        assertEquals(1L, counts.get(2));
+        assertEquals(1L, counts.get(3));
+    }
+}
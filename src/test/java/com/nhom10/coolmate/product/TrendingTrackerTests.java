@@ -0,0 +1,62 @@
+package com.nhom10.coolmate.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TrendingTrackerTests {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void scoresDecayWithAgeAndExpireAfterOneDay() {
+        TrendingTracker tracker = new TrendingTracker(null);
+        long start = 1_000 * TrendingTracker.BUCKETS * MINUTE;
+
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1, false, start);
+        }
+        for (int i = 0; i < 3; i++) {
+            tracker.record(2, true, start + 100 * MINUTE);
+        }
+
+        // Sau đúng 1 chu kỳ bán rã (2h), 10 lượt xem còn 5 điểm
+        Map<Integer, Double> scores = tracker.scores(start + 120 * MINUTE);
+        assertEquals(5.0, scores.get(1), 1e-9);
+        assertEquals(3 * TrendingTracker.CART_WEIGHT * Math.pow(0.5, 20 / 120.0), scores.get(2), 1e-9);
+
+        // Ô của phút đầu tiên được dùng lại sau 24h: sự kiện cũ không còn được tính
+        tracker.record(3, false, start + TrendingTracker.BUCKETS * MINUTE);
+        scores = tracker.scores(start + TrendingTracker.BUCKETS * MINUTE);
+        assertFalse(scores.containsKey(1));
+        assertEquals(1.0, scores.get(3), 1e-9);
+    }
+
+    @Test
+    void concurrentRecordsAreNotLost() throws InterruptedException {
+        TrendingTracker tracker = new TrendingTracker(null);
+        long now = System.currentTimeMillis() / MINUTE * MINUTE;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    tracker.record(i % 4, false, now);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<Integer, Double> scores = tracker.scores(now);
+        for (int productId = 0; productId < 4; productId++) {
+            assertEquals(20_000.0, scores.get(productId), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.nhom10.coolmate.vouchers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Lấy / trả lượt đồng thời với việc trả toàn bộ lượt về DB (Admin sửa voucher): không lượt nào bị mất
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        // DB riêng vì test này commit dữ liệu thật
+        "spring.datasource.url=jdbc:h2:mem:voucher_allotment_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "coolmate.voucher.allotment-block-size=5"
+})
+class VoucherAllotmentConcurrencyTests {
+
+    private static final int LIMIT = 100_000;
+    private static final int WORKERS = 8;
+    private static final int ROUNDS = 1_500;
+
+    @Autowired
+    private VoucherAllotment voucherAllotment;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Test
+    void claimsAndReleasesRacingDrainKeepUsedCountExact() throws Exception {
+        Integer voucherId = voucherRepository.save(Voucher.builder()
+                .code("FLASH").discountType(DiscountType.AMOUNT).discountAmount(BigDecimal.valueOf(20000))
+                .quantity(LIMIT).usageLimit(LIMIT).usedCount(0).status(1).build()).getId();
+
+        AtomicInteger netClaimed = new AtomicInteger();
+        CountDownLatch workersDone = new CountDownLatch(WORKERS);
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(WORKERS + 1);
+
+        for (int w = 0; w < WORKERS; w++) {
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        if (!voucherAllotment.tryClaim(voucherId)) continue;
+                        netClaimed.incrementAndGet();
+                        // Một phần đơn hàng rollback và trả lại lượt
+                        if (ThreadLocalRandom.current().nextInt(3) == 0) {
+                            voucherAllotment.release(voucherId);
+                            netClaimed.decrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                } finally {
+                    workersDone.countDown();
+                }
+            });
+        }
+        pool.submit(() -> {
+            try {
+                start.await();
+                while (workersDone.getCount() > 0) {
+                    voucherAllotment.drain(voucherId);
+                }
+            } catch (Throwable e) {
+                unexpected.add(e);
+            }
+        });
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES), "Các luồng không kết thúc kịp");
+        assertTrue(unexpected.isEmpty(), "Lỗi không mong đợi: " + unexpected.peek());
+
+        voucherAllotment.drainAll();
+        Voucher voucher = voucherRepository.findById(voucherId).orElseThrow();
+        assertEquals(netClaimed.get(), voucher.getUsedCount(), "used_count");
+        assertEquals(LIMIT - netClaimed.get(), voucher.getQuantity(), "quantity");
+    }
+}
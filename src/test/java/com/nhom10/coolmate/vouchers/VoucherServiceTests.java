@@ -0,0 +1,109 @@
+package com.nhom10.coolmate.vouchers;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({VoucherService.class, VoucherAllotment.class, VoucherCache.class})
+class VoucherServiceTests {
+
+    @Autowired
+    private VoucherService voucherService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private VoucherCache voucherCache;
+
+    @Test
+    void editingVoucherWithoutUsageLimitKeepsItsRemainingUses() {
+        VoucherDTO created = voucherService.saveVoucher(voucher(null, null));
+        assertRemaining(created.getId(), VoucherService.DEFAULT_QUANTITY, 0);
+
+        voucherRepository.claimVoucher(created.getId(), 2);
+        entityManager.clear();
+
+        VoucherDTO edit = voucher(created.getId(), null);
+        edit.setDescription("Giảm 20K cho mọi đơn");
+        voucherService.saveVoucher(edit);
+        assertRemaining(created.getId(), VoucherService.DEFAULT_QUANTITY - 2, 2);
+
+        // Đặt giới hạn mới: số lượt còn lại tính theo lượt đã dùng
+        voucherService.saveVoucher(voucher(created.getId(), 10));
+        assertRemaining(created.getId(), 8, 2);
+    }
+
+    @Test
+    void bestVouchersSkipExhaustedCodesWithOneQuantityCheck() {
+        saveVoucher("HET50K", 50000, 0);
+        saveVoucher("GIAM30K", 30000, 5);
+        saveVoucher("GIAM20K", 20000, 5);
+        saveVoucher("GIAM10K", 10000, 5);
+        entityManager.flush();
+        voucherCache.invalidate();
+        // Nạp trước bản chụp để chỉ đếm truy vấn của lần gọi bên dưới
+        voucherCache.findBestCandidates(BigDecimal.valueOf(500000), 1);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<VoucherOptionDTO> best = voucherService.findBestVouchers(BigDecimal.valueOf(500000), 2);
+
+        // Mã đã hết lượt bị loại ngay khi nạp bản chụp, không chiếm chỗ trong top-N
+        assertEquals(List.of("GIAM30K", "GIAM20K"), best.stream().map(VoucherOptionDTO::getCode).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private void saveVoucher(String code, long amount, int quantity) {
+        voucherRepository.save(Voucher.builder()
+                .code(code).discountType(DiscountType.AMOUNT).discountAmount(BigDecimal.valueOf(amount))
+                .minOrder(BigDecimal.ZERO).startDate(LocalDate.now().minusDays(1)).endDate(LocalDate.now().plusDays(30))
+                .quantity(quantity).usageLimit(quantity).usedCount(0).status(1).build());
+    }
+
+    private void assertRemaining(Integer voucherId, int quantity, int usedCount) {
+        entityManager.flush();
+        entityManager.clear();
+        Voucher voucher = voucherRepository.findById(voucherId).orElseThrow();
+        assertEquals(quantity, voucher.getQuantity(), "quantity");
+        assertEquals(usedCount, voucher.getUsedCount(), "used_count");
+    }
+
+    private static VoucherDTO voucher(Integer id, Integer usageLimit) {
+        return VoucherDTO.builder()
+                .id(id)
+                .code("GIAM20K")
+                .description("Giảm 20K")
+                .discountType(DiscountType.AMOUNT)
+                .discountValue(BigDecimal.valueOf(20000))
+                .minOrderAmount(BigDecimal.ZERO)
+                .startDate(LocalDate.now().minusDays(1))
+                .endDate(LocalDate.now().plusDays(30))
+                .usageLimit(usageLimit)
+                .usedCount(0)
+                .status(1)
+                .build();
+    }
+}